@@ -1,3 +1,5 @@
+import java.util.BitSet;
+
 import org.apache.commons.math3.fraction.BigFraction;
 
 
@@ -7,9 +9,27 @@ import org.apache.commons.math3.fraction.BigFraction;
  */
 public class AllPatterns implements PatternFeasibilityCheck {
 
+	private static final CompiledFeasibilityCheck ACCEPT_ALL = new CompiledFeasibilityCheck() {
+
+		@Override
+		public boolean canAdd(int type, BitSet typesInPattern) {
+			return true;
+		}
+
+		@Override
+		public boolean isConstrained(int type) {
+			return false;
+		}
+
+		@Override
+		public boolean excludesTypes(BitSet typesInPattern) {
+			return false;
+		}
+	};
+
 	@Override
-	public boolean canAdd(BigFraction size, KnapsackPattern pattern) {
-		return true;
+	public CompiledFeasibilityCheck compile(BigFraction[] sizes) {
+		return ACCEPT_ALL;
 	}
 
 }
@@ -0,0 +1,118 @@
+import java.math.BigInteger;
+import java.util.PriorityQueue;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ *
+ * This knapsack solver searches the tree of IntegerKnapsackSolver in best-first order: the partial
+ * patterns are kept in a priority queue and the one with the largest upper bound (the Dantzig bound, i.e.,
+ * the remaining space filled with the maximum expansion of the types that still fit) is expanded first.
+ * Like this, the first complete patterns found tend to be close to the heaviest one.
+ *
+ * The queue holds at most Util.bestFirstMaxNodes partial patterns. If it is full, the subtrees of new
+ * partial patterns are searched depth-first right away.
+ *
+ * The result is the same pattern as the one of the depth-first solver: no pattern at least as heavy as
+ * the heaviest one is ever pruned, and of several equally heavy patterns the one that comes last in the
+ * depth-first order is kept.
+ *
+ */
+public class BestFirstKnapsackSolver extends IntegerKnapsackSolver {
+
+	public BestFirstKnapsackSolver(BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check,
+			BigFraction sandExpansion) {
+		super(sizes, weights, check, sandExpansion);
+	}
+
+	@Override
+	protected void search() {
+		PriorityQueue<Node> queue = new PriorityQueue<>();
+		queue.add(new Node(0, capacity, BigInteger.ZERO, new int[typePermutation.length], emptyPattern));
+
+		while (!queue.isEmpty() && !searchStopped.get()) {
+			Node node = queue.poll();
+			int level = node.typeIndexInPermutation;
+			stopIfInterrupted();
+			if (budget!=null && budget.countNode()) {
+				//the subtree of this node is not searched, like those of all nodes left in the queue
+				searchStopped.set(true);
+				addOpenSubtree(level, node.remainingSpace, node.totalWeight);
+				break;
+			}
+			if (canBePruned(level, node.remainingSpace, node.totalWeight, node.pattern)) continue;
+			if (level==typePermutation.length) { //we have added all item sizes - this is a complete pattern
+				patternFound(node.totalWeight.add(node.remainingSpace.multiply(scaledSandExpansion)), node.cardinality);
+				continue;
+			}
+			if (canBePrunedByTable(level, node.remainingSpace, node.totalWeight)) continue;
+
+			//create one child for each number of items of the current type
+			int typeToAdd = typePermutation[level];
+			int numberOfItemsToAdd = howManyItemsFit(level, node.remainingSpace, node.pattern);
+			for (int n = numberOfItemsToAdd; n>=0; --n) {
+				int[] cardinality = node.cardinality.clone();
+				cardinality[level] = n;
+				KnapsackPattern pattern = null;
+				if (node.pattern!=null) {
+					pattern = node.pattern.copy();
+					pattern.addItems(typeToAdd, n);
+				}
+				BigInteger space = node.remainingSpace.subtract(scaledSize[level].multiply(BigInteger.valueOf(n)));
+				BigInteger weight = node.totalWeight.add(scaledWeight[level].multiply(BigInteger.valueOf(n)));
+				if (queue.size()<Util.bestFirstMaxNodes)
+					queue.add(new Node(level+1, space, weight, cardinality, pattern));
+				else
+					searchSubtree(level+1, space, weight, cardinality, pattern);
+			}
+		}
+
+		//if the budget is exhausted, the node with the largest bound bounds all nodes left in the queue
+		if (!queue.isEmpty()) {
+			Node node = queue.peek();
+			addOpenSubtree(node.typeIndexInPermutation, node.remainingSpace, node.totalWeight);
+		}
+	}
+
+	/**
+	 * A partial pattern in the queue together with its upper bound, which is stored as a fraction
+	 * boundNumerator / boundDenominator (in units of 1/Q).
+	 */
+	private class Node implements Comparable<Node> {
+		final int typeIndexInPermutation;
+		final BigInteger remainingSpace;
+		final BigInteger totalWeight;
+		final int[] cardinality;
+		final KnapsackPattern pattern;
+		final BigInteger boundNumerator;
+		final BigInteger boundDenominator;
+
+		Node(int typeIndexInPermutation, BigInteger remainingSpace, BigInteger totalWeight, int[] cardinality,
+				KnapsackPattern pattern) {
+			this.typeIndexInPermutation = typeIndexInPermutation;
+			this.remainingSpace = remainingSpace;
+			this.totalWeight = totalWeight;
+			this.cardinality = cardinality;
+			this.pattern = pattern;
+
+			int i = firstFitting(typeIndexInPermutation, remainingSpace);
+			if (i==typePermutation.length) {
+				boundNumerator = totalWeight.add(remainingSpace.multiply(scaledSandExpansion));
+				boundDenominator = BigInteger.ONE;
+			} else {
+				boundNumerator = totalWeight.multiply(scaledSize[i]).add(remainingSpace.multiply(scaledWeight[i]));
+				boundDenominator = scaledSize[i];
+			}
+		}
+
+		/**
+		 * Nodes with a larger bound come first; of nodes with the same bound, the deeper one comes first.
+		 */
+		@Override
+		public int compareTo(Node o) {
+			int c = o.boundNumerator.multiply(boundDenominator).compareTo(boundNumerator.multiply(o.boundDenominator));
+			if (c==0) c = Integer.compare(o.typeIndexInPermutation, typeIndexInPermutation);
+			return c;
+		}
+	}
+}
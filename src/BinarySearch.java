@@ -1,4 +1,14 @@
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.math3.fraction.BigFraction;
 
@@ -39,6 +49,20 @@ public class BinarySearch extends DualLPChecker {
 	private static long startTime = System.nanoTime();    
 	
 	private final String inputFile;
+	private boolean parametricSearch; //if set, y3 is read off the envelope of all patterns (see findY3Parametric)
+	private boolean columnGeneration; //if set, y1, y2, y3 are found together by an LP (see findDualValuesByLP)
+	private int numberOfProbes; //the number of y3-values tested at once (see findY3ByProbing)
+	private ExecutorService probeExecutor; //runs the tests of findY3ByProbing
+	private boolean warmStart; //if set, y3-values of other cases are tested first (see findY3FromOtherCases)
+
+	/**
+	 * With a warm start, the knapsack searches of each case are counted (see findY3); index denotes the
+	 * value of k.
+	 */
+	private long[] warmStartSearches; //the searches run by findY3FromOtherCases
+	private long[] coldSearches; //the searches run by searchY3; counted for the cases decided by the warm start only on request
+	private boolean[] decidedByWarmStart;
+	private long searchesOnlyCounted; //the searches run by countSearchesWithoutWarmStart, which are not part of the total
 
 	public BinarySearch(String inputFile) throws IOException {
 		this.inputFile = inputFile;
@@ -59,12 +83,22 @@ public class BinarySearch extends DualLPChecker {
 		this.y1Values = new BigFraction[redSpace.length];
 		this.y2Values = new BigFraction[redSpace.length];
 		this.y3Values = new BigFraction[redSpace.length];
+		this.warmStartSearches = new long[redSpace.length];
+		this.coldSearches = new long[redSpace.length];
+		this.decidedByWarmStart = new boolean[redSpace.length];
 
 		//compute some additional parameters
 		this.sandExpansion = BigFraction.ONE.divide(BigFraction.ONE.subtract(types[types.length-1].getSizeLB()));
 		for (int i = 0; i<types.length; ++i)
 			types[i].computeWeights();
 		patternWeightThreshold = targetRatio.subtract(new BigFraction(1,1000));
+		//any pattern above the target ratio tells us in which direction to move y3, it need not be the heaviest
+		decisionMode = Util.isDecisionMode(true);
+		numberOfCuts = Util.numberOfCuts;
+		parametricSearch = Util.y3Search.equals("parametric");
+		columnGeneration = Util.y3Search.equals("lp");
+		numberOfProbes = numberOfCuts>0 ? 1 : Math.max(1, Util.y3Probes);
+		warmStart = Util.y3WarmStart;
 		log("\n\tTARGET RATIO: "+targetRatio.doubleValue()+"\n--------------------------------------------");
 	}
 	
@@ -78,22 +112,185 @@ public class BinarySearch extends DualLPChecker {
 
 		checkKPlusOne();
 
-		for (int k = 0; k<redSpace.length; ++k) {
-			if (!isNecessaryToCheckCase(k)) continue; //if this value of k is impossible (no item of this red class), skip it
-			BigFraction y3 = findY3(k);
-			if (y3==null) {
-				//we stopped the search without finding a feasible y3-value: stop the program
-				log("Couldn't find value for y3 that makes dual LP feasible! Stopping program.");
-				System.exit(0);
-			}
+		if (numberOfProbes>1) probeExecutor = Executors.newFixedThreadPool(Util.numberOfThreads);
+		List<Integer> infeasibleCases;
+		try {
+			infeasibleCases = findAllY3();
+		} finally {
+			if (probeExecutor!=null) probeExecutor.shutdownNow();
+		}
+		if (!infeasibleCases.isEmpty()) {
+			//we stopped the search without finding a feasible y3-value: stop the program
+			List<String> cases = new ArrayList<>();
+			for (int k : infeasibleCases) cases.add(Integer.toString(k));
+			log("Couldn't find value for y3 that makes dual LP feasible for k = " + String.join(", ", cases) + "! Stopping program.");
+			System.exit(0);
 		}
 
+		if (warmStart) logWarmStarts();
+		log((getNumberOfKnapsackSearches()-searchesOnlyCounted) + " knapsack searches were run in total (including the case k = K+1).");
+
 		//write the parameters found to a file; this can be used in the verifier then
 		createOutputFile();
 	}
 	
+	/**
+	 * Runs the searches of all cases k<K+1. The cases are independent, so they run in parallel on
+	 * Util.numberOfThreads threads, starting with those that are expected to take longest. Each case writes
+	 * only its own entries of y1Values, y2Values and y3Values, which are read only after all cases are
+	 * finished. The log messages of each case are collected and written in the order of k, so the protocol
+	 * is the same as if the cases were searched one after the other. Unlike the verifier, no case is
+	 * cancelled if another one is infeasible: the method returns all k for which no feasible y3 was found.
+	 * With a warm start (see findY3FromOtherCases), the cases are searched one after the other in the order
+	 * of k instead.
+	 */
+	private List<Integer> findAllY3() throws IOException {
+		//with a warm start, each case needs the values of the cases before it, so they are searched in order
+		ExecutorService executor = Executors.newFixedThreadPool(warmStart ? 1 : Util.numberOfThreads);
+		Integer[] cases = orderCasesByExpectedTime();
+		if (warmStart) Arrays.sort(cases);
+		List<Future<SearchResult>> results = new ArrayList<>(Collections.<Future<SearchResult>>nCopies(redSpace.length, null));
+		for (int k : cases) {
+			results.set(k, executor.submit(new Callable<SearchResult>() {
+				@Override
+				public SearchResult call() {
+					return findY3Buffered(k);
+				}
+			}));
+		}
+		executor.shutdown();
+
+		//write the output of all cases in order
+		List<Integer> infeasibleCases = new ArrayList<>();
+		try {
+			for (int k = 0; k<redSpace.length; ++k) {
+				SearchResult result = results.get(k).get();
+				writeLog(result.log);
+				if (result.error!=null) {
+					executor.shutdownNow();
+					if (result.error instanceof IOException) throw (IOException) result.error;
+					if (result.error instanceof RuntimeException) throw (RuntimeException) result.error;
+					throw new IllegalStateException(result.error);
+				}
+				if (result.skipped) continue;
+				if (result.y3==null) infeasibleCases.add(k);
+				else showTime();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			executor.shutdownNow();
+			throw new IllegalStateException("The binary searches were interrupted", e);
+		}
+		return infeasibleCases;
+	}
+
+	/**
+	 * Runs the search of case k and collects its log messages instead of writing them.
+	 */
+	private SearchResult findY3Buffered(int k) {
+		SearchResult result = new SearchResult();
+		startLogBuffer();
+		try {
+			//if this value of k is impossible (no item of this red class), skip it
+			if (isNecessaryToCheckCase(k)) result.y3 = findY3(k);
+			else result.skipped = true;
+		} catch (IOException | RuntimeException e) {
+			result.error = e;
+		} finally {
+			result.log = stopLogBuffer();
+		}
+		return result;
+	}
+
+	/**
+	 * The outcome of the search of one case, together with its log messages.
+	 */
+	private static class SearchResult {
+		boolean skipped;
+		BigFraction y3; //null if no feasible value was found
+		Exception error;
+		String log;
+	}
+
+	/**
+	 * Finds a feasible value of y3 for case k, or returns null if there is none. With a warm start, the
+	 * values of other cases are tested first (see findY3FromOtherCases), and the knapsack searches of both
+	 * parts are counted. How many searches the warm start saved in a case it decided is only known after
+	 * searching the case without it as well, which is done only if Util.y3WarmStartSavings is set.
+	 */
 	private BigFraction findY3(int k) throws IOException {
+		if (!warmStart) return searchY3(k);
+		long start = getNumberOfKnapsackSearches();
+		BigFraction y3 = findY3FromOtherCases(k);
+		warmStartSearches[k] = getNumberOfKnapsackSearches() - start;
+		if (y3!=null) {
+			decidedByWarmStart[k] = true;
+			if (Util.y3WarmStartSavings) coldSearches[k] = countSearchesWithoutWarmStart(k);
+			return y3;
+		}
+		y3 = searchY3(k);
+		coldSearches[k] = getNumberOfKnapsackSearches() - start - warmStartSearches[k];
+		return y3;
+	}
 
+	/**
+	 * Searches case k again without warm start, only to count the knapsack searches; the log messages and
+	 * values of this search are discarded.
+	 */
+	private long countSearchesWithoutWarmStart(int k) throws IOException {
+		BigFraction y1 = y1Values[k];
+		BigFraction y2 = y2Values[k];
+		BigFraction y3 = y3Values[k];
+		String messages = stopLogBuffer();
+		startLogBuffer();
+		long start = getNumberOfKnapsackSearches();
+		try {
+			searchY3(k);
+		} finally {
+			stopLogBuffer();
+			startLogBuffer();
+			writeLog(messages);
+			y1Values[k] = y1;
+			y2Values[k] = y2;
+			y3Values[k] = y3;
+		}
+		long searches = getNumberOfKnapsackSearches() - start;
+		searchesOnlyCounted += searches;
+		return searches;
+	}
+
+	/**
+	 * Writes how many cases the warm starts decided and how many knapsack searches they ran. If the cases
+	 * they decided were also searched without them (see findY3), it also writes how many searches they saved.
+	 */
+	private void logWarmStarts() throws IOException {
+		int decided = 0;
+		long spent = 0;
+		long replaced = 0;
+		for (int k = 0; k<redSpace.length; ++k) {
+			spent += warmStartSearches[k];
+			if (decidedByWarmStart[k]) {
+				decided++;
+				replaced += coldSearches[k];
+			}
+		}
+		log(decided + " cases were decided by the y3-value of another case.");
+		if (Util.y3WarmStartSavings) {
+			log("The warm starts saved " + (replaced-spent) + " knapsack searches: they ran " + spent
+					+ ", and searching the cases they decided without them ran " + replaced + ".");
+		} else {
+			log("The warm starts ran " + spent + " knapsack searches; start with -Dy3WarmStartSavings=true to count how many they saved.");
+		}
+	}
+
+	/**
+	 * Searches a feasible value of y3 for case k without using the values of other cases.
+	 */
+	private BigFraction searchY3(int k) throws IOException {
+		if (columnGeneration) {
+			BigFraction[] result = findDualValuesByLP(k);
+			//if the LP proves that there are no feasible values, there is no need for the binary search
+			if (result!=null) return result[0];
+		}
 		BigFraction[] ellipsoid = {BigFraction.ZERO, new BigFraction(1)};
 		BigFraction y3_center = new BigFraction(1,4);
 
@@ -115,26 +312,48 @@ public class BinarySearch extends DualLPChecker {
 				log(String.format("\tFeasible! y3=%.5f", y3_center.doubleValue()));
 				y3Values[k] = y3_center;
 				log(String.format("Binary search for case k=" + k + " successful! y3=%.5f found.\n\n--------------------------------------------\n", y3Values[k].doubleValue()));
-				showTime();
 				return y3_center;
 			} else {
 				//LP is infeasible: maxWeightPattern contains the pattern that violates the constraint, 
 				//i.e. the pattern that has weight larger than y4
-				BigFraction totalW = maxWeightPattern.getTotalWeightWInclSand(types, k, sandExpansion);
-				BigFraction totalV = maxWeightPattern.getTotalWeightVInclSand(types, k, sandExpansion);
-				BigFraction diff = totalW.subtract(totalV);
-				if (diff.compareTo(BigFraction.ZERO)==0) {
-					//we can't do anything! weight is equal for w and v, so too high for every y3
-					break;
-				} else if (diff.compareTo(BigFraction.ZERO)>0) {//change the search interval for y3
-					ellipsoid[0] = y3_center;
+				if (parametricSearch && iter==1) {
+					//the first value is feasible in most cases; if it is not, the feasible values are computed at once
+					BigFraction[] result = findY3Parametric(k);
+					//if the parametric search proves that there is no feasible y3, there is no need for the binary search
+					if (result!=null) return result[0];
+				}
+				if (numberOfProbes>1) {
+					//the remaining values are tested several at once
+					return findY3ByProbing(k, maxWeightPattern, y3_center);
+				}
+				if (numberOfCuts>0) {
+					//every violating pattern gives a linear constraint on y3, which we use to cut the interval
+					if (!cutInterval(ellipsoid, maxWeightPattern, k, y3_center)) break;
+					boolean feasible = true;
+					for (KnapsackPattern p : getViolatingPatterns(k))
+						feasible = feasible && cutInterval(ellipsoid, p, k, y3_center);
+					if (!feasible || ellipsoid[0].compareTo(ellipsoid[1])>=0) {
+						//no y3 in the interval satisfies all these constraints
+						break;
+					}
 				} else {
-					ellipsoid[1] = y3_center;
+					BigFraction totalW = maxWeightPattern.getTotalWeightWInclSand(types, k, sandExpansion);
+					BigFraction totalV = maxWeightPattern.getTotalWeightVInclSand(types, k, sandExpansion);
+					BigFraction diff = totalW.subtract(totalV);
+					if (diff.compareTo(BigFraction.ZERO)==0) {
+						//we can't do anything! weight is equal for w and v, so too high for every y3
+						break;
+					} else if (diff.compareTo(BigFraction.ZERO)>0) {//change the search interval for y3
+						ellipsoid[0] = y3_center;
+					} else {
+						ellipsoid[1] = y3_center;
+					}
 				}
 
 				//compute the new center of the interval (i.e., the new value for y3 to test)
 				//and the difference to the old center (for stopping the search at some point)
-				BigFraction newCenter = ellipsoid[0].add(ellipsoid[1].subtract(ellipsoid[0]).divide(2));
+				BigFraction newCenter = numberOfCuts>0 ? simplestDyadicBetween(ellipsoid[0], ellipsoid[1])
+						: ellipsoid[0].add(ellipsoid[1].subtract(ellipsoid[0]).divide(2));
 				y3_diff = newCenter.subtract(y3_center).abs();
 				y3_center = newCenter;
 			}
@@ -143,6 +362,325 @@ public class BinarySearch extends DualLPChecker {
 		return null;
 	}
 	
+	/**
+	 * Adjacent cases mostly end up with the same y3-value, so before searching, this method tests the value
+	 * of case k-1 and then the values of the cases before k with the same weight flags (see getWeightFlags),
+	 * at most maxWarmStarts different values. The cases must be searched in the order of k. Returns the first
+	 * feasible value, or null if none is.
+	 */
+	private BigFraction findY3FromOtherCases(int k) throws IOException {
+		int maxWarmStarts = 3;
+		List<BigFraction> tested = new ArrayList<>();
+		BitSet flags = getWeightFlags(k);
+		for (int j = k-1; j>=0 && tested.size()<maxWarmStarts; --j) {
+			BigFraction y3 = y3Values[j];
+			if (y3==null || tested.contains(y3) || (j<k-1 && !getWeightFlags(j).equals(flags))) continue;
+			tested.add(y3);
+			log(String.format("Warm start: test y3=%.5f of case k=%d.", y3.doubleValue(), j));
+			KnapsackPattern maxWeightPattern = checkDualLP(k, y3);
+			if (maxWeightPattern==null || maxWeightPattern.getTotalWeightInclSand(sandExpansion).compareTo(targetRatio)<=0) {
+				log(String.format("\tFeasible! y3=%.5f", y3.doubleValue()));
+				y3Values[k] = y3;
+				log(String.format("Warm start for case k=" + k + " successful after %d dual LPs! y3=%.5f found.\n\n--------------------------------------------\n", tested.size(), y3.doubleValue()));
+				return y3;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the flags isWHigh and isVHigh of all types for the case k; the bits 2i and 2i+1 belong to type i.
+	 */
+	private BitSet getWeightFlags(int k) {
+		BitSet flags = new BitSet(2*types.length);
+		for (int i = 0; i<types.length; ++i) {
+			flags.set(2*i, types[i].isWHigh(k));
+			flags.set(2*i+1, types[i].isVHigh(k));
+		}
+		return flags;
+	}
+
+	/**
+	 * A k-ary version of the binary search, which continues after the first y3-value turned out to be
+	 * infeasible because of the given pattern. In each round, numberOfProbes values that divide the interval
+	 * into equal parts are tested at once, each in its own thread. As in the binary search, the sign of W-V
+	 * of the violating pattern found for a value tells whether the feasible values are above or below it, so
+	 * the interval shrinks by a factor of numberOfProbes+1 per round. If several values are feasible, the
+	 * smallest one is taken, so the result does not depend on the order in which the tests finish. The log
+	 * messages of the tests are written in the order of the values.
+	 */
+	private BigFraction findY3ByProbing(int k, KnapsackPattern firstPattern, BigFraction firstY3) throws IOException {
+		BigFraction[] interval = {BigFraction.ZERO, BigFraction.ONE};
+		if (!narrowInterval(interval, k, firstPattern, firstY3)) return null;
+
+		int round = 0;
+		int maxRounds = 20;
+		BigFraction step = interval[1].subtract(interval[0]).divide(numberOfProbes+1);
+		while (round<maxRounds && step.compareTo(new BigFraction(1, 10000000))>0) {
+			round++;
+			log(String.format("Round %d: testing %d values of y3 in [%.5f, %.5f] at once.", round, numberOfProbes, interval[0].doubleValue(), interval[1].doubleValue()));
+			List<Future<ProbeResult>> results = new ArrayList<>();
+			for (int i = 0; i<numberOfProbes; ++i) {
+				final BigFraction y3 = interval[0].add(step.multiply(i+1));
+				results.add(probeExecutor.submit(new Callable<ProbeResult>() {
+					@Override
+					public ProbeResult call() throws IOException {
+						ProbeResult result = new ProbeResult();
+						result.y3 = y3;
+						startLogBuffer();
+						try {
+							result.pattern = checkDualLP(k, y3);
+						} finally {
+							result.log = stopLogBuffer();
+						}
+						return result;
+					}
+				}));
+			}
+
+			//evaluate the tests in the order of the values
+			BigFraction[] newInterval = interval.clone();
+			boolean feasible = true;
+			for (int i = 0; i<numberOfProbes; ++i) {
+				ProbeResult result;
+				try {
+					result = results.get(i).get();
+				} catch (InterruptedException | ExecutionException e) {
+					for (Future<ProbeResult> f : results) f.cancel(true);
+					if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+					if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+					throw new IllegalStateException("Testing the values of y3 was interrupted", e);
+				}
+				writeLog(result.log);
+				if (result.pattern==null || result.pattern.getTotalWeightInclSand(sandExpansion).compareTo(targetRatio)<=0) {
+					for (Future<ProbeResult> f : results) f.cancel(true);
+					log(String.format("\tFeasible! y3=%.5f", result.y3.doubleValue()));
+					y3Values[k] = result.y3;
+					log(String.format("Search for case k=" + k + " successful after %d rounds! y3=%.5f found.\n\n--------------------------------------------\n", round, y3Values[k].doubleValue()));
+					return result.y3;
+				}
+				feasible = feasible && narrowInterval(newInterval, k, result.pattern, result.y3);
+			}
+			interval = newInterval;
+			if (!feasible || interval[0].compareTo(interval[1])>=0) {
+				//the violating patterns exclude all values of y3
+				break;
+			}
+			step = interval[1].subtract(interval[0]).divide(numberOfProbes+1);
+		}
+		return null;
+	}
+
+	/**
+	 * Shrinks the interval of y3-values by the pattern p, which violates the dual LP for the given y3: if W-V
+	 * is positive, the feasible values are above y3, otherwise they are below (see findY3). Returns false if
+	 * p violates the dual LP for every y3, as W equals V.
+	 */
+	private boolean narrowInterval(BigFraction[] interval, int k, KnapsackPattern p, BigFraction y3) {
+		BigFraction totalW = p.getTotalWeightWInclSand(types, k, sandExpansion);
+		BigFraction totalV = p.getTotalWeightVInclSand(types, k, sandExpansion);
+		int direction = totalW.subtract(totalV).compareTo(BigFraction.ZERO);
+		if (direction>0 && y3.compareTo(interval[0])>0) interval[0] = y3;
+		if (direction<0 && y3.compareTo(interval[1])<0) interval[1] = y3;
+		return direction!=0;
+	}
+
+	/**
+	 * The outcome of testing one y3-value, together with its log messages.
+	 */
+	private static class ProbeResult {
+		BigFraction y3;
+		KnapsackPattern pattern;
+		String log;
+	}
+
+	/**
+	 * Instead of testing one y3-value after the other, this method computes the interval of all y3-values for
+	 * which no pattern is heavier than the target ratio in a single knapsack search (see
+	 * ParametricKnapsackSolver). Only values up to 6/10 are considered, as the verifier does not accept larger
+	 * ones, so the parameter of the solver is y3/(6/10). A value from this interval is then confirmed by
+	 * checkDualLP, as the solver does not consider the pattern q3.
+	 * The method returns an array with the y3-value found, an array with null if the solver proves that no
+	 * y3-value is feasible, or null if the binary search has to decide the case.
+	 */
+	private BigFraction[] findY3Parametric(int k) throws IOException {
+		BigFraction maxY3 = new BigFraction(6,10);
+		ParametricKnapsackSolver solver = createParametricKnapsackSolver(k, maxY3);
+		if (solver==null) return null;
+		countKnapsackSearch();
+		solver.solve(targetRatio);
+		log(solver.getStatistics());
+		BigFraction[] interval = solver.getFeasibleInterval();
+		if (interval==null) {
+			log("For every y3 in [0, 0.6], one of the following patterns is above the target ratio:");
+			List<KnapsackPattern> patterns = solver.getCertificate(BigFraction.ZERO);
+			List<KnapsackPattern> patternsAtMaxY3 = solver.getCertificate(BigFraction.ONE);
+			for (int i = 0; i<patterns.size(); ++i)
+				log(String.format("\t" + getOutputWeightString(k, patterns.get(i)) + "\n\twith total weight %.5f for y3=0 and %.5f for y3=0.6",
+						patterns.get(i).getTotalWeightInclSand(sandExpansion).doubleValue(), patternsAtMaxY3.get(i).getTotalWeightInclSand(sandExpansion).doubleValue()));
+			return new BigFraction[] {null};
+		}
+		BigFraction lower = interval[0].multiply(maxY3);
+		BigFraction upper = interval[1].multiply(maxY3);
+		log(String.format("No pattern is above the target ratio for y3 in [%.5f, %.5f].", lower.doubleValue(), upper.doubleValue()));
+
+		BigFraction y3 = lower.equals(upper) ? lower : simplestDyadicBetween(lower, upper);
+		KnapsackPattern maxWeightPattern = checkDualLP(k, y3);
+		if (maxWeightPattern!=null && maxWeightPattern.getTotalWeightInclSand(sandExpansion).compareTo(targetRatio)>0) {
+			log("The pattern q3 is above the target ratio, so continue with the binary search.");
+			return null;
+		}
+		log(String.format("\tFeasible! y3=%.5f", y3.doubleValue()));
+		y3Values[k] = y3;
+		log(String.format("Parametric search for case k=" + k + " successful! y3=%.5f found.\n\n--------------------------------------------\n", y3Values[k].doubleValue()));
+		return new BigFraction[] {y3};
+	}
+
+	/**
+	 * Instead of fixing y1 and y2 (see checkY1, checkY2) and searching for y3, this method finds the three
+	 * values together by column generation. All weights of the dual LP are affine functions of (y1, y2, y3),
+	 * so each pattern gives a linear constraint weight <= t. An exact LP minimizes t subject to the
+	 * constraints of the patterns found so far (and of q3), y1 + c >= w1, y2/2 + c >= w1, y1 <= 0.05 and
+	 * y3 <= 0.6 (the verifier does not accept larger values). Then, the knapsack solver returns the heaviest
+	 * pattern for the optimal values (or, in decision mode, any pattern above t and the target ratio); if it is
+	 * above both, its constraint is added and the LP is solved again. Otherwise, the values are feasible (if t
+	 * is at most the target ratio) or no values are (if t is larger). As the knapsack solver does not consider
+	 * q3, values are only accepted if q3 is not above the target ratio either.
+	 * The method returns an array with the y3-value found, an array with null if no values are feasible, or
+	 * null if the binary search has to decide the case.
+	 */
+	private BigFraction[] findDualValuesByLP(int k) throws IOException {
+		if (!hasKnapsackProblem(k)) return null;
+		boolean extended = usesExtendedDualLP(k);
+		int t = redSpace[k].compareTo(BigFraction.ONE_THIRD)>0 ? computeTypeOfRFromClass(k) : -1;
+		BigFraction[] sizes = createDualLPSizes(k);
+		PatternFeasibilityCheck check = createDualLPCheck(k);
+		//the weights for y = 0 and for the unit vectors, i.e., the coefficients of the affine functions
+		BigFraction[][] weights = {
+				createDualLPWeights(k, BigFraction.ZERO, BigFraction.ZERO, BigFraction.ZERO),
+				createDualLPWeights(k, BigFraction.ONE, BigFraction.ZERO, BigFraction.ZERO),
+				createDualLPWeights(k, BigFraction.ZERO, BigFraction.ONE, BigFraction.ZERO),
+				createDualLPWeights(k, BigFraction.ZERO, BigFraction.ZERO, BigFraction.ONE)};
+
+		//the variables are y1, y2, y3, t
+		RationalLP lp = new RationalLP(4);
+		BigFraction maxY3 = new BigFraction(6,10);
+		lp.addConstraint(vector(0, 0, 1, 0), maxY3);
+		BigFraction minY1 = extended ? computeWeightOfQ1(t).subtract(targetRatio) : BigFraction.ZERO;
+		List<BigFraction[]> weightFunctions = new ArrayList<>(); //the patterns (and q3) in the LP, see addWeightConstraint
+		if (extended) {
+			lp.addConstraint(vector(1, 0, 0, 0), new BigFraction(5,100));
+			lp.addConstraint(vector(-1, 0, 0, 0), minY1.negate());
+			lp.addConstraint(vector(0, -1, 0, 0), minY1.multiply(2).negate());
+			addWeightConstraint(lp, weightFunctions, new BigFraction[] {computeWeightOfQ3(t, k, BigFraction.ZERO, BigFraction.ZERO),
+					computeWeightOfQ3(t, k, BigFraction.ONE, BigFraction.ZERO), computeWeightOfQ3(t, k, BigFraction.ZERO, BigFraction.ZERO),
+					computeWeightOfQ3(t, k, BigFraction.ZERO, BigFraction.ONE)});
+		}
+		BigFraction[] objective = vector(0, 0, 0, 1);
+
+		//the first values are those the binary search starts with (t=0 stands for no pattern so far)
+		BigFraction[] x = {minY1, minY1.multiply(2), new BigFraction(1,4), BigFraction.ZERO};
+		boolean solveLP = false;
+		int maxIter = 100;
+		for (int iter = 1; iter<=maxIter; ++iter) {
+			boolean valuesOfLP = solveLP;
+			if (solveLP) x = lp.minimize(objective);
+			solveLP = true;
+			if (x==null || x[0].compareTo(new BigFraction(5,100))>0) {
+				log(String.format("No y1 with w_{1k} - c <= y1 <= 0.05 exists, as w_{1k} = %.5f.", computeWeightOfQ1(t).doubleValue()));
+				return new BigFraction[] {null};
+			}
+			BigFraction threshold = x[3].compareTo(targetRatio)>0 ? x[3] : targetRatio;
+			KnapsackSolver solver = createKnapsackSolver(k, sizes, createDualLPWeights(k, x[0], x[1], x[2]), check);
+			//in decision mode, any violated constraint will do, otherwise the most violated one is added
+			countKnapsackSearch();
+			KnapsackPattern p = decisionMode ? solver.findPatternAbove(threshold) : solver.solve(threshold);
+			String statistics = solver.getStatistics();
+			if (statistics!=null) log(statistics);
+			log(String.format("Column generation, iteration %d: y1=%.5f, y2=%.5f, y3=%.5f; the %d patterns so far have weight at most %.5f",
+					iter, extended ? x[0].doubleValue() : 0, extended ? x[1].doubleValue() : 0, x[2].doubleValue(), weightFunctions.size(), x[3].doubleValue()));
+			if (p!=null && p.getTotalWeightInclSand(sandExpansion).compareTo(threshold)>0) {
+				log(String.format("\t" + (decisionMode ? "Pattern above the threshold" : "Heaviest pattern") + " is " + getOutputWeightString(k, p) + "\n\twith total weight %.5f", p.getTotalWeightInclSand(sandExpansion).doubleValue()));
+				BigFraction[] values = new BigFraction[weights.length];
+				for (int i = 0; i<weights.length; ++i) values[i] = getTotalWeight(p, weights[i]);
+				addWeightConstraint(lp, weightFunctions, values);
+				continue;
+			}
+			if (x[3].compareTo(targetRatio)>0) {
+				log(String.format("For all values of y1, y2, y3, some pattern has weight at least %.5f, which is above the target ratio.", x[3].doubleValue()));
+				return new BigFraction[] {null};
+			}
+			if (valuesOfLP) {
+				//the LP returns a vertex, where y3 usually has a large denominator: try the simplest value for which
+				//no pattern found so far is above the target ratio
+				BigFraction y3 = findSimplestY3(weightFunctions, x[0], x[1], maxY3);
+				if (!y3.equals(x[2])) {
+					x = new BigFraction[] {x[0], x[1], y3, targetRatio};
+					solveLP = false;
+					continue;
+				}
+			}
+			if (extended && computeWeightOfQ3(t, k, x[0], x[2]).compareTo(targetRatio)>0) {
+				//the knapsack solver does not consider q3, and values that did not come from the LP may violate it;
+				//its constraint is already in the LP, so the LP is solved again
+				log(String.format("\tThe pattern q3 has weight %.5f, which is above the target ratio.", computeWeightOfQ3(t, k, x[0], x[2]).doubleValue()));
+				continue;
+			}
+			log(String.format("\tFeasible! y3=%.5f", x[2].doubleValue()));
+			if (extended) {
+				y1Values[k] = x[0];
+				y2Values[k] = x[1];
+			}
+			y3Values[k] = x[2];
+			log(String.format("Column generation for case k=" + k + " successful after %d knapsack searches! y3=%.5f found.\n\n--------------------------------------------\n", iter, y3Values[k].doubleValue()));
+			return new BigFraction[] {x[2]};
+		}
+		log("Column generation did not converge, so continue with the binary search.");
+		return null;
+	}
+
+	/**
+	 * Returns the simplest dyadic y3 in [0, maxY3] for which none of the given weight functions is above the
+	 * target ratio for the given y1 and y2 (see simplestDyadicBetween). The given functions must allow some y3.
+	 */
+	private BigFraction findSimplestY3(List<BigFraction[]> weightFunctions, BigFraction y1, BigFraction y2, BigFraction maxY3) {
+		BigFraction lower = BigFraction.ZERO;
+		BigFraction upper = maxY3;
+		for (BigFraction[] values : weightFunctions) {
+			//the constraint is a*y3 <= b
+			BigFraction a = values[3].subtract(values[0]);
+			BigFraction b = targetRatio.subtract(values[0]).subtract(values[1].subtract(values[0]).multiply(y1)).subtract(values[2].subtract(values[0]).multiply(y2));
+			if (a.compareTo(BigFraction.ZERO)>0 && b.divide(a).compareTo(upper)<0) upper = b.divide(a);
+			if (a.compareTo(BigFraction.ZERO)<0 && b.divide(a).compareTo(lower)>0) lower = b.divide(a);
+		}
+		return lower.equals(upper) ? lower : simplestDyadicBetween(lower, upper);
+	}
+
+	private static BigFraction[] vector(int... entries) {
+		BigFraction[] v = new BigFraction[entries.length];
+		for (int i = 0; i<entries.length; ++i) v[i] = new BigFraction(entries[i]);
+		return v;
+	}
+
+	/**
+	 * Adds the constraint weight(y1, y2, y3) <= t for an affine function given by its values for y = 0 and for
+	 * the three unit vectors; the values are also added to the given list.
+	 */
+	private static void addWeightConstraint(RationalLP lp, List<BigFraction[]> weightFunctions, BigFraction[] values) {
+		weightFunctions.add(values);
+		lp.addConstraint(new BigFraction[] {values[1].subtract(values[0]), values[2].subtract(values[0]), values[3].subtract(values[0]), BigFraction.MINUS_ONE},
+				values[0].negate());
+	}
+
+	/**
+	 * Returns the total weight (incl. sand) of the pattern for the given weights of the types.
+	 */
+	private BigFraction getTotalWeight(KnapsackPattern p, BigFraction[] weights) {
+		BigFraction total = p.getRemainingSpace().multiply(sandExpansion);
+		for (int i = 0; i<weights.length; ++i) total = total.add(weights[i].multiply(p.getCardinality(i)));
+		return total;
+	}
+
 	/**
 	 * This method writes the parameters of the algorithm to a file that can be used
 	 * as input for the verifier.
@@ -63,6 +63,9 @@ public class BinarySearchSH extends DualLPChecker {
 		for (int i = 0; i<types.length; ++i)
 			types[i].computeWeights();
 		patternWeightThreshold = targetRatio.subtract(new BigFraction(1,1000));
+		//any pattern above the target ratio tells us in which direction to move y3, it need not be the heaviest
+		decisionMode = Util.isDecisionMode(true);
+		numberOfCuts = Util.numberOfCuts;
 		log("\n\tTARGET RATIO: "+targetRatio.doubleValue()+"\n--------------------------------------------");
 	}
 
@@ -118,21 +121,34 @@ public class BinarySearchSH extends DualLPChecker {
 			} else {
 				//LP is infeasible: maxWeightPattern contains the pattern that violates the constraint, 
 				//i.e. the pattern that has weight larger than y4
-				BigFraction totalW = maxWeightPattern.getTotalWeightWInclSand(types, k, sandExpansion);
-				BigFraction totalV = maxWeightPattern.getTotalWeightVInclSand(types, k, sandExpansion);
-				BigFraction diff = totalW.subtract(totalV);
-				if (diff.compareTo(BigFraction.ZERO)==0) {
-					//we can't do anything! weight is equal for w and v, so too high for every y3
-					break;
-				} else if (diff.compareTo(BigFraction.ZERO)>0) {//change the search interval for y3
-					ellipsoid[0] = y3_center;
+				if (numberOfCuts>0) {
+					//every violating pattern gives a linear constraint on y3, which we use to cut the interval
+					if (!cutInterval(ellipsoid, maxWeightPattern, k, y3_center)) break;
+					boolean feasible = true;
+					for (KnapsackPattern p : getViolatingPatterns(k))
+						feasible = feasible && cutInterval(ellipsoid, p, k, y3_center);
+					if (!feasible || ellipsoid[0].compareTo(ellipsoid[1])>=0) {
+						//no y3 in the interval satisfies all these constraints
+						break;
+					}
 				} else {
-					ellipsoid[1] = y3_center;
+					BigFraction totalW = maxWeightPattern.getTotalWeightWInclSand(types, k, sandExpansion);
+					BigFraction totalV = maxWeightPattern.getTotalWeightVInclSand(types, k, sandExpansion);
+					BigFraction diff = totalW.subtract(totalV);
+					if (diff.compareTo(BigFraction.ZERO)==0) {
+						//we can't do anything! weight is equal for w and v, so too high for every y3
+						break;
+					} else if (diff.compareTo(BigFraction.ZERO)>0) {//change the search interval for y3
+						ellipsoid[0] = y3_center;
+					} else {
+						ellipsoid[1] = y3_center;
+					}
 				}
 
 				//compute the new center of the interval (i.e., the new value for y3 to test)
 				//and the difference to the old center (for stopping the search at some point)
-				BigFraction newCenter = ellipsoid[0].add(ellipsoid[1].subtract(ellipsoid[0]).divide(2));
+				BigFraction newCenter = numberOfCuts>0 ? simplestDyadicBetween(ellipsoid[0], ellipsoid[1])
+						: ellipsoid[0].add(ellipsoid[1].subtract(ellipsoid[0]).divide(2));
 				y3_diff = newCenter.subtract(y3_center).abs();
 				y3_center = newCenter;
 			}
@@ -154,7 +170,7 @@ public class BinarySearchSH extends DualLPChecker {
 			weights[i] = types[i].getWeightW(k).multiply(BigFraction.ONE.subtract(y3)).add(types[i].getWeightV(k).multiply(y3));
 		}
 
-		return checkSimpleDualLP(allSizes, weights);
+		return checkSimpleDualLP(k, allSizes, weights);
 	}
 
 	/**
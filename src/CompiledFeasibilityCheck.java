@@ -0,0 +1,30 @@
+import java.util.BitSet;
+
+
+/**
+ * A PatternFeasibilityCheck compiled for the types of one knapsack problem. The types are identified by
+ * their index in the arrays of sizes and weights given to the solver, and a pattern is given by the set
+ * of types present in it (see KnapsackPattern.getTypes), so every check consists of a few bit operations.
+ *
+ */
+public interface CompiledFeasibilityCheck {
+
+	/**
+	 * Returns whether an item of the given type can be added to a pattern that contains the given types.
+	 */
+	public boolean canAdd(int type, BitSet typesInPattern);
+
+	/**
+	 * Returns whether items of the given type are treated in a special way by this check, i.e., whether
+	 * canAdd might refuse them or refuse other items because of them.
+	 */
+	public boolean isConstrained(int type);
+
+	/**
+	 * Returns whether canAdd refuses some type for a pattern that contains the given types. If so, the
+	 * bounds of the solver may leave out the refused types (see IntegerKnapsackSolver.canBePruned);
+	 * otherwise, they do not need to be adjusted for this pattern. For this, a type that is refused for
+	 * some pattern must also be refused for all patterns that contain more types.
+	 */
+	public boolean excludesTypes(BitSet typesInPattern);
+}
@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.BitSet;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ *
+ * This knapsack solver uses dynamic programming instead of branch and bound. All sizes are scaled to
+ * integers by their common denominator C, so a pattern can contain items of total size 0, ..., C-1
+ * (items have to fit strictly). The rest of the bin is filled with sand, which is treated like one more
+ * type of size 1/C after all types. For i from the last type down to the first, the solver computes
+ * the maximum weight g_i[c] of the types i, ..., sand of total size exactly c, with at least one unit of
+ * sand (unbounded knapsack); the heaviest pattern has weight g_0[C].
+ *
+ * This only works if C is small: the running time is O(number of types * C), and for every type, the
+ * solver stores one bit per total size. If C exceeds Util.maxDPCapacity, if the number of types times C
+ * exceeds Util.maxDPWork, or if the weights do not fit into a long, isApplicable() returns false and
+ * another engine has to be used. Large tables are allocated off-heap. The default engine only uses this
+ * solver if the tables fit on the heap (see the static isApplicable).
+ *
+ * A check that excludes patterns is only supported for NotQ1Q2: as a pattern may not contain both
+ * conflicting types, the table is computed twice, once without each of these types.
+ *
+ * If several patterns are equally heavy, this solver returns the same one as KnapsackSolver, i.e., the
+ * one that comes last in the search order (see KnapsackSolver.isLaterInSearchOrder): it has the
+ * fewest items of the first type, among those the fewest items of the second type, and so on.
+ *
+ */
+public class DPKnapsackSolver extends KnapsackSolver {
+
+	/**
+	 * Tables with more entries than this are allocated off-heap.
+	 */
+	private static final int OFF_HEAP_CAPACITY = 1<<20;
+
+	/**
+	 * The largest capacity for which the tables can be allocated (a buffer has at most 2^31-1 bytes).
+	 */
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE / Long.BYTES - 1;
+
+	private static final long IMPOSSIBLE = Long.MIN_VALUE;
+
+	public DPKnapsackSolver(BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check,
+			BigFraction sandExpansion) {
+		super(sizes, weights, check, sandExpansion);
+	}
+
+	private boolean scaled; //whether the scaled values below have been computed
+	private boolean applicable;
+	private int capacity; //C
+	private int[] scaledSize; //size of the types in units of 1/C, indexed w.r.t. the permutation
+	private long[] scaledWeight; //weight of the types in units of 1/D_w, indexed w.r.t. the permutation
+	private long sizeFactor; //g[c] is multiplied with this to get units of 1/(D_w * C * sandDenominator)
+	private long sandWeight; //weight of sand of size 1/C in units of 1/(D_w * C * sandDenominator)
+
+	/**
+	 * Checks whether this solver can solve its knapsack problem, i.e., whether the common denominator C of
+	 * the sizes is at most Util.maxDPCapacity, the number of types times C is at most Util.maxDPWork, all
+	 * weights fit into a long and the check is supported.
+	 */
+	public boolean isApplicable() {
+		if (scaled) return applicable;
+		scaled = true;
+		applicable = false;
+		if (!(check instanceof AllPatterns) && !(check instanceof NotQ1Q2)) return false;
+
+		typePermutation = createPermutation();
+		long maxCapacity = Math.min(Math.min(Util.maxDPCapacity, MAX_CAPACITY), Util.maxDPWork / Math.max(1, typePermutation.length));
+		BigInteger sizeDenominator = BigInteger.ONE;
+		BigInteger weightDenominator = BigInteger.ONE;
+		for (int i : typePermutation) {
+			sizeDenominator = Scaling.lcm(sizeDenominator, size[i].getDenominator());
+			weightDenominator = Scaling.lcm(weightDenominator, weight[i].getDenominator());
+			if (sizeDenominator.compareTo(BigInteger.valueOf(maxCapacity))>0) return false;
+		}
+
+		//any pattern has weight at most (C-1) * maxWeight in units of 1/D_w; together with the sand, it has
+		//to fit into a long in units of 1/(D_w * C * sandDenominator)
+		BigInteger maxWeight = BigInteger.ZERO;
+		for (int i : typePermutation)
+			maxWeight = maxWeight.max(Scaling.scale(weight[i], weightDenominator));
+		BigInteger factor = sizeDenominator.multiply(sandExpansion.getDenominator());
+		BigInteger sand = sandExpansion.getNumerator().multiply(weightDenominator);
+		BigInteger maxTotal = sizeDenominator.multiply(maxWeight).multiply(factor).add(sizeDenominator.multiply(sand));
+		if (maxTotal.bitLength()>=63) return false;
+
+		capacity = sizeDenominator.intValue();
+		sizeFactor = factor.longValue();
+		sandWeight = sand.longValue();
+		scaledSize = new int[typePermutation.length];
+		scaledWeight = new long[typePermutation.length];
+		for (int i = 0; i<typePermutation.length; ++i) {
+			scaledSize[i] = Scaling.scale(size[typePermutation[i]], sizeDenominator).intValue();
+			scaledWeight[i] = Scaling.scale(weight[typePermutation[i]], weightDenominator).longValue();
+		}
+		applicable = true;
+		return true;
+	}
+
+	/**
+	 * Checks cheaply whether the default engine should solve the given knapsack problem by dynamic
+	 * programming: the check has to be supported, the number of types times the common denominator C of the
+	 * sizes has to be at most Util.maxDPWork, the tables have to fit on the heap and all weights have to fit
+	 * into a long. Unlike isApplicable(), this does not order or presolve the types, so it is done for all
+	 * types; if it returns true, so does isApplicable() of a solver for this problem.
+	 */
+	public static boolean isApplicable(BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check,
+			BigFraction sandExpansion) {
+		if (!(check instanceof AllPatterns) && !(check instanceof NotQ1Q2)) return false;
+		long maxCapacity = Math.min(Math.min(Util.maxDPCapacity, OFF_HEAP_CAPACITY-1), Util.maxDPWork / Math.max(1, sizes.length));
+		BigInteger sizeDenominator = BigInteger.ONE;
+		BigInteger weightDenominator = BigInteger.ONE;
+		for (int i = 0; i<sizes.length; ++i) {
+			sizeDenominator = Scaling.lcm(sizeDenominator, sizes[i].getDenominator());
+			weightDenominator = Scaling.lcm(weightDenominator, weights[i].getDenominator());
+			if (sizeDenominator.compareTo(BigInteger.valueOf(maxCapacity))>0) return false;
+		}
+		BigInteger maxWeight = BigInteger.ZERO;
+		for (int i = 0; i<weights.length; ++i)
+			maxWeight = maxWeight.max(Scaling.scale(weights[i], weightDenominator));
+		BigInteger factor = sizeDenominator.multiply(sandExpansion.getDenominator());
+		BigInteger sand = sandExpansion.getNumerator().multiply(weightDenominator);
+		return sizeDenominator.multiply(maxWeight).multiply(factor).add(sizeDenominator.multiply(sand)).bitLength()<63;
+	}
+
+	@Override
+	public KnapsackPattern solve(BigFraction patternWeightThreshold) throws IOException {
+		if (!isApplicable())
+			throw new IllegalStateException("The knapsack problem cannot be solved by dynamic programming!");
+
+		//for NotQ1Q2, the pattern may contain only one of the two conflicting types
+		int[] heaviestCardinality;
+		if (check instanceof NotQ1Q2) {
+			NotQ1Q2 notQ1Q2 = (NotQ1Q2) check;
+			int[] withoutLarge = solveExcluding(notQ1Q2.getSizeOfLarge());
+			int[] withoutTypeOfR = solveExcluding(notQ1Q2.getSizeOfTypeOfR());
+			int c = Long.compare(totalWeight(withoutLarge), totalWeight(withoutTypeOfR));
+			if (c==0) c = isLaterInSearchOrder(withoutLarge, withoutTypeOfR) ? 1 : -1;
+			heaviestCardinality = c>0 ? withoutLarge : withoutTypeOfR;
+		} else {
+			heaviestCardinality = solveExcluding(null);
+		}
+
+		KnapsackPattern heaviestPattern = createPattern(heaviestCardinality);
+		if (heaviestPattern.getTotalWeightInclSand(sandExpansion).compareTo(patternWeightThreshold)<0) return null;
+		return heaviestPattern;
+	}
+
+	/**
+	 * Computes the heaviest pattern that does not contain items of the given size (if it is not null)
+	 * and returns its cardinalities, indexed w.r.t. the permutation. Of several equally heavy patterns, the
+	 * one that comes last in the search order is returned (see the class comment).
+	 */
+	private int[] solveExcluding(BigFraction excludedSize) {
+		//g[c] is g_i[c] for the current type i; it starts with the sand alone
+		LongBuffer g = capacity+1>OFF_HEAP_CAPACITY
+				? ByteBuffer.allocateDirect((capacity+1) * Long.BYTES).asLongBuffer() : LongBuffer.allocate(capacity+1);
+		g.put(0, IMPOSSIBLE);
+		for (int c = 1; c<=capacity; ++c) g.put(c, c * sandWeight);
+
+		//added[i] contains the sizes c for which g_i[c] > g_{i+1}[c], i.e., every heaviest pattern of the types
+		//i, ..., sand of size c contains an item of type i
+		BitSet[] added = new BitSet[typePermutation.length];
+		for (int i = typePermutation.length-1; i>=0; --i) {
+			stopIfInterrupted();
+			added[i] = new BitSet();
+			if (size[typePermutation[i]].equals(excludedSize)) continue;
+			int s = scaledSize[i];
+			long w = scaledWeight[i] * sizeFactor;
+			for (int c = s; c<=capacity; ++c) {
+				long before = g.get(c-s);
+				if (before!=IMPOSSIBLE && before+w>g.get(c)) {
+					g.put(c, before+w);
+					added[i].set(c);
+				}
+			}
+		}
+
+		//reconstruct the pattern with the fewest items of the first type, and so on: at type i, an item is
+		//added only as long as no heaviest pattern of the remaining size can do without one
+		int[] cardinality = new int[typePermutation.length];
+		int c = capacity;
+		for (int i = 0; i<typePermutation.length; ++i) {
+			while (added[i].get(c)) {
+				cardinality[i]++;
+				c -= scaledSize[i];
+			}
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Returns the weight of the pattern with the given cardinalities including sand, in units of
+	 * 1/(D_w * C * sandDenominator).
+	 */
+	private long totalWeight(int[] cardinality) {
+		long weight = 0;
+		int space = capacity;
+		for (int i = 0; i<cardinality.length; ++i) {
+			weight += cardinality[i] * scaledWeight[i];
+			space -= cardinality[i] * scaledSize[i];
+		}
+		return weight * sizeFactor + space * sandWeight;
+	}
+}
@@ -0,0 +1,17 @@
+import java.math.BigInteger;
+
+
+/**
+ * This bound fills the remaining space with the maximum expansion of all types that still fit, i.e.,
+ * totalWeight + remainingSpace * maxExpansion. This is the bound KnapsackSolver uses.
+ *
+ */
+public class DantzigBound implements KnapsackBound {
+
+	@Override
+	public boolean canBePruned(IntegerKnapsackSolver solver, int typeIndexInPermutation, BigInteger remainingSpace,
+			BigInteger totalWeight, BigInteger maxWeightFound) {
+		int i = solver.firstFitting(typeIndexInPermutation, remainingSpace);
+		return solver.isHeavierThanFilling(maxWeightFound, totalWeight, remainingSpace, i);
+	}
+}
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ *
+ * This knapsack solver works in two phases. In the first phase, the search for the heaviest pattern is
+ * done in double arithmetic. Pruning uses a safety margin that is much larger than the rounding errors
+ * that can occur, so no pattern that might be the heaviest one is discarded. All patterns whose approximate
+ * weight is close to or above the best weight found so far are collected as candidates. In the second
+ * phase, only these candidates are evaluated exactly, and the heaviest of them is returned.
+ *
+ * The decisions which items fit into a pattern are always exact: if the double computation is not clearly
+ * on one side, the remaining space is recomputed with BigFractions. Therefore, the search tree is exactly
+ * the tree of KnapsackSolver and the result is still a rigorous proof.
+ *
+ */
+public class DoubleKnapsackSolver extends KnapsackSolver {
+
+	/**
+	 * The safety margin used for all comparisons in double arithmetic. The rounding errors are in the
+	 * order of (number of types) * 1e-16.
+	 */
+	private static final double MARGIN = 1e-9;
+
+	public DoubleKnapsackSolver(BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check,
+			BigFraction sandExpansion) {
+		super(sizes, weights, check, sandExpansion);
+	}
+
+	private double[] approxSize; //indexed w.r.t. the permutation
+	private double[] approxWeight; //indexed w.r.t. the permutation
+	private double[] approxExpansion; //indexed w.r.t. the permutation
+	private double approxSandExpansion;
+
+	private double maxWeightFound; //approximate weight of the heaviest pattern found so far (or the threshold)
+	private int[] cardinality; //the current pattern, indexed w.r.t. the permutation
+	private List<int[]> candidates; //the candidate patterns, in the order in which they were found
+	private List<Double> candidateWeights; //the approximate weights of the candidates
+	private KnapsackPattern pattern; //only maintained if the check needs to see the pattern
+
+	@Override
+	public KnapsackPattern solve(BigFraction patternWeightThreshold) throws IOException {
+		//create the permutation that sorts types in descending order of expansion
+		typePermutation = createPermutation();
+
+		approxSize = new double[typePermutation.length];
+		approxWeight = new double[typePermutation.length];
+		approxExpansion = new double[typePermutation.length];
+		for (int i = 0; i<typePermutation.length; ++i) {
+			approxSize[i] = size[typePermutation[i]].doubleValue();
+			approxWeight[i] = weight[typePermutation[i]].doubleValue();
+			approxExpansion[i] = weight[typePermutation[i]].divide(size[typePermutation[i]]).doubleValue();
+		}
+		approxSandExpansion = sandExpansion.doubleValue();
+
+		//FIRST PHASE: search in double arithmetic
+		maxWeightFound = patternWeightThreshold.doubleValue();
+		cardinality = new int[typePermutation.length];
+		candidates = new ArrayList<>();
+		candidateWeights = new ArrayList<>();
+		pattern = check instanceof AllPatterns ? null : new KnapsackPattern(getItemTypes());
+		packRecursively(0, 1, 0);
+
+		//SECOND PHASE: evaluate the candidates exactly; as in KnapsackSolver, the last of several equally
+		//heavy patterns is returned
+		KnapsackPattern heaviestPattern = null;
+		BigFraction heaviestWeight = patternWeightThreshold;
+		for (int i = 0; i<candidates.size(); ++i) {
+			if (candidateWeights.get(i)<maxWeightFound-MARGIN) continue;
+			KnapsackPattern p = createPattern(candidates.get(i));
+			BigFraction w = p.getTotalWeightInclSand(sandExpansion);
+			if (w.compareTo(heaviestWeight)>=0) {
+				heaviestWeight = w;
+				heaviestPattern = p;
+			}
+		}
+		return heaviestPattern;
+	}
+
+	/**
+	 * The recursive method that searches for the heaviest pattern; it works like the one in KnapsackSolver.
+	 * @param typeIndexInPermutation the type-index (w.r.t. the permutation) of the next item to add to the pattern
+	 * @param remainingSpace the (approximate) space left in the current pattern
+	 * @param totalWeight the (approximate) weight of the current pattern without sand
+	 */
+	private void packRecursively(int typeIndexInPermutation, double remainingSpace, double totalWeight) {
+		stopIfInterrupted();
+		//find the first type that still fits; it has the maximum expansion of all remaining types
+		int i = typeIndexInPermutation;
+		while (i<typePermutation.length && !fits(i, typeIndexInPermutation, remainingSpace)) ++i;
+		double expansion = i==typePermutation.length ? approxSandExpansion : approxExpansion[i];
+
+		//only prune if the upper bound is below the best weight by more than the safety margin
+		double upperBound = totalWeight + remainingSpace * expansion;
+		if (upperBound<maxWeightFound-MARGIN) {
+			return;
+		}
+
+		if (typeIndexInPermutation==typePermutation.length) { //we have added all item sizes - this is a candidate
+			candidates.add(cardinality.clone());
+			candidateWeights.add(upperBound);
+			if (upperBound>maxWeightFound) {
+				maxWeightFound = upperBound;
+				removeLightCandidates();
+			}
+		} else { //add items of type typeIndexInPermutation to this pattern
+			int typeToAdd = typePermutation[typeIndexInPermutation];
+
+			//find out how many items of the current type we can add
+			int numberOfItemsToAdd = howManyItemsFit(typeIndexInPermutation, remainingSpace);
+
+			//check, if we really can add this item (or if it would lead to a forbidden pattern)
+			if (pattern!=null && !compiledCheck.canAdd(typeToAdd, pattern.getTypes())) numberOfItemsToAdd = 0;
+
+			if (pattern!=null) pattern.addItems(typeToAdd, numberOfItemsToAdd);
+			while (numberOfItemsToAdd>=0) {
+				//the space and weight are computed from the values of the parent node; like this, the rounding
+				//errors only depend on the depth of the search tree
+				cardinality[typeIndexInPermutation] = numberOfItemsToAdd;
+				packRecursively(typeIndexInPermutation+1,
+						remainingSpace - numberOfItemsToAdd * approxSize[typeIndexInPermutation],
+						totalWeight + numberOfItemsToAdd * approxWeight[typeIndexInPermutation]);
+
+				numberOfItemsToAdd--;
+				if (numberOfItemsToAdd>=0 && pattern!=null) {
+					pattern.removeItem(typeToAdd);
+				}
+			}
+			cardinality[typeIndexInPermutation] = 0;
+			if (pattern!=null) pattern.removeAllItems(typeToAdd);
+		}
+	}
+
+	/**
+	 * Checks whether an item of the type at the given position of the permutation fits strictly into the
+	 * current pattern (which contains items of the types before position level).
+	 */
+	private boolean fits(int typeIndexInPermutation, int level, double remainingSpace) {
+		double diff = remainingSpace - approxSize[typeIndexInPermutation];
+		if (diff>MARGIN) return true;
+		if (diff<-MARGIN) return false;
+		return size[typePermutation[typeIndexInPermutation]].compareTo(exactRemainingSpace(level))<0;
+	}
+
+	/**
+	 * Computes how many items of the type at the given position of the permutation fit strictly into
+	 * the current pattern (which contains items of the types before this position).
+	 */
+	private int howManyItemsFit(int typeIndexInPermutation, double remainingSpace) {
+		double s = approxSize[typeIndexInPermutation];
+		int n = (int) Math.floor(remainingSpace / s);
+		if (remainingSpace - n * s > MARGIN && (n+1) * s - remainingSpace > MARGIN)
+			return n;
+
+		//the double computation is not reliable here, so do it exactly (like KnapsackPattern.howManyItemsFit)
+		BigFraction bf = exactRemainingSpace(typeIndexInPermutation).divide(size[typePermutation[typeIndexInPermutation]]);
+		int intPart = bf.intValue();
+		int res = bf.equals(new BigFraction(intPart)) ? intPart-1 : intPart;
+		return res<0 ? 0 : res;
+	}
+
+	/**
+	 * Computes the exact remaining space of the current pattern, which contains items of the types
+	 * before position level of the permutation.
+	 */
+	private BigFraction exactRemainingSpace(int level) {
+		BigFraction remainingSpace = BigFraction.ONE;
+		for (int j = 0; j<level; ++j)
+			if (cardinality[j]>0)
+				remainingSpace = remainingSpace.subtract(size[typePermutation[j]].multiply(cardinality[j]));
+		return remainingSpace;
+	}
+
+	/**
+	 * Removes all candidates that are lighter than the best pattern found so far by more than the safety margin.
+	 * This is only done from time to time, so that the list does not grow too large.
+	 */
+	private void removeLightCandidates() {
+		if (candidates.size()<1024) return;
+		List<int[]> newCandidates = new ArrayList<>();
+		List<Double> newWeights = new ArrayList<>();
+		for (int i = 0; i<candidates.size(); ++i) {
+			if (candidateWeights.get(i)<maxWeightFound-MARGIN) continue;
+			newCandidates.add(candidates.get(i));
+			newWeights.add(candidateWeights.get(i));
+		}
+		candidates = newCandidates;
+		candidateWeights = newWeights;
+	}
+}
@@ -1,7 +1,14 @@
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import org.apache.commons.math3.fraction.BigFraction;
 
@@ -24,6 +31,10 @@ public abstract class DualLPChecker {
 	 */
 	protected BigFraction targetRatio;
 	protected BigFraction patternWeightThreshold; //this is for speeding up the knapsack solver
+	protected boolean decisionMode = Util.isDecisionMode(false); //if set, the knapsack solver only looks for a pattern above targetRatio
+	protected int numberOfCuts = 0; //if positive, the knapsack solver collects this many heaviest patterns per case (see getViolatingPatterns)
+	protected long nodeBudget = 0; //the budget of each knapsack search (see KnapsackSolver.setBudget); 0 means no limit
+	protected long timeBudget = 0;
 	protected BigFraction sandExpansion;
 	protected BigFraction[] redSpace;
 	
@@ -34,18 +45,47 @@ public abstract class DualLPChecker {
 	 * This is for logging.
 	 */
 	protected BufferedWriter writer;
+
+	/**
+	 * If a case is checked in its own thread, its log messages are collected here instead of being
+	 * written immediately (see startLogBuffer).
+	 */
+	private final ThreadLocal<StringBuilder> logBuffer = new ThreadLocal<>();
+
+	/**
+	 * The maximum upper bound of the knapsack searches that ran out of their budget since the last call
+	 * of clearOpenUpperBound in this thread, or null if there was no such search.
+	 */
+	private final ThreadLocal<BigFraction> openUpperBound = new ThreadLocal<>();
+
+	/**
+	 * The number of knapsack searches so far, in all threads (see countKnapsackSearch).
+	 */
+	private final AtomicLong numberOfKnapsackSearches = new AtomicLong();
+
+
+	/**
+	 * The heaviest pattern found for each case k so far. It is used as start pattern of the knapsack
+	 * solver for the same case (e.g. with another value of y3) and for the neighbouring cases k-1, k+1.
+	 */
+	private final Map<Integer, KnapsackPattern> heaviestPatternOfCase = new ConcurrentHashMap<>();
+
+	/**
+	 * The heaviest patterns above the target ratio in the last knapsack problem of each case k, if
+	 * numberOfCuts is positive.
+	 */
+	private final Map<Integer, List<KnapsackPattern>> violatingPatternsOfCase = new ConcurrentHashMap<>();
 	
 
 
 	/**
-	 * This method solves the knapsack problem associated with the simple dual LP (D^{k,sml}_w in the paper).
-	 * It returns the maximum weight found.
+	 * This method solves the knapsack problem associated with the simple dual LP (D^{k,sml}_w in the paper)
+	 * for the case k. It returns the maximum weight found; the search starts with the heaviest patterns of
+	 * this case and its neighbouring cases.
 	 */
-	protected KnapsackPattern checkSimpleDualLP(BigFraction[] sizes, BigFraction[] weights) throws IOException {
-		//solve knapsack problem
-		PatternFeasibilityCheck check = new AllPatterns(); //there are no special patterns
-		KnapsackSolver solver = new KnapsackSolver(sizes, weights, check, sandExpansion);
-		return solver.solve(targetRatio.subtract(new BigFraction(1,1000)));
+	protected KnapsackPattern checkSimpleDualLP(int k, BigFraction[] sizes, BigFraction[] weights) throws IOException {
+		KnapsackSolver solver = createKnapsackSolver(k, sizes, weights, new AllPatterns());
+		return solveKnapsack(k, solver, targetRatio.subtract(new BigFraction(1,1000)));
 	}
 	
 	/**
@@ -63,18 +103,8 @@ public abstract class DualLPChecker {
 
 
 
-			//we need two large types: (1/2, 2/3] and (2/3, 1]
-			BigFraction[] allSizes = new BigFraction[types.length+2];
-			BigFraction[] weights = new BigFraction[allSizes.length];
-			allSizes[0] = BigFraction.TWO_THIRDS;
-			allSizes[1] = BigFraction.ONE_HALF;
-			weights[0] = BigFraction.ONE; //w=v=1 for this type
-			weights[1] = BigFraction.ONE.subtract(y3); //(1-y3)*w + y3*v = 1-y3 as w=1 and v=0 for this type
-			for (int i = 0; i<types.length; ++i) {
-				allSizes[i+2] = types[i].getSizeLB();
-				//weights in this case are (1-y3)*w + y3*v
-				weights[i+2] = types[i].getWeightW(k).multiply(BigFraction.ONE.subtract(y3)).add(types[i].getWeightV(k).multiply(y3));
-			}
+			BigFraction[] allSizes = createDualLPSizes(k);
+			BigFraction[] weights = createDualLPWeights(k, y3);
 
 			log(String.format("r is small, so check feasibility of simpler dual LP; y3 = " + y3.doubleValue() + ".\n"));
 			
@@ -82,13 +112,13 @@ public abstract class DualLPChecker {
 			writeKnapsackFile(k, allSizes, weights);
 
 			//check feasibility of the dual LP
-			KnapsackPattern p = checkSimpleDualLP(allSizes, weights);
+			KnapsackPattern p = checkSimpleDualLP(k, allSizes, weights);
 
 			//output the findings
 			if (p!=null)
-				log(String.format("\tHeaviest pattern is " + getOutputWeightString(k, p) + "\n\twith weights " + p.weightString() + ", %.5f (sand)\n\tand total weight %.5f", p.getRemainingSpace().multiply(sandExpansion).doubleValue(), p.getTotalWeightInclSand(sandExpansion).doubleValue()));
+				log(String.format("\t" + (decisionMode ? "Pattern above the target ratio" : "Heaviest pattern") + " is " + getOutputWeightString(k, p) + "\n\twith weights " + p.weightString() + ", %.5f (sand)\n\tand total weight %.5f", p.getRemainingSpace().multiply(sandExpansion).doubleValue(), p.getTotalWeightInclSand(sandExpansion).doubleValue()));
 			else
-				log(String.format("\tNo pattern has weight above %.5f", patternWeightThreshold.doubleValue()));
+				log(String.format("\tNo pattern has weight above %.5f", (decisionMode ? targetRatio : patternWeightThreshold).doubleValue()));
 			return p;
 		} else { 
 
@@ -108,18 +138,8 @@ public abstract class DualLPChecker {
 			BigFraction w1 = computeWeightOfQ1(t);
 			boolean rangeOfRSmallEnough = types[t-1].getSizeLB().subtract(types[t].getSizeLB()).compareTo(types[types.length-1].getSizeLB())<=0;
 
-			//add three large types: (2/3, 1], (1-t_t(r), 2/3], (1/2, 1-t_t(r)]
-			BigFraction[] allSizes = new BigFraction[types.length+3];
-			BigFraction[] weights = new BigFraction[allSizes.length];
-			allSizes[0] = BigFraction.TWO_THIRDS;
-			allSizes[1] = BigFraction.ONE.subtract(types[t-1].getSizeLB());
-			allSizes[2] = BigFraction.ONE_HALF;
-			//compute weight of large types: (1-y3)*w + y3*v
-			weights[0] = weights[1] = BigFraction.ONE; //w=v=1 for these types
-			weights[2] = BigFraction.ONE.subtract(y3); //w=1 and v=0 for this type
-			for (int i = 0; i<types.length; ++i) allSizes[i+3] = types[i].getSizeLB();
-			
-			//weights are now computed depending on whether w1 or targetRatio is larger
+			BigFraction[] allSizes = createDualLPSizes(k);
+			BigFraction[] weights = createDualLPWeights(k, y3);
 
 			if (!rangeOfRSmallEnough || w1.compareTo(targetRatio)<1) {
 
@@ -127,11 +147,6 @@ public abstract class DualLPChecker {
 				// FIRST CASE: w1 <= y4, so we can use the simpler LP
 				// ----------------------------------------
 
-				
-				//in this case, weights are again (1-y3)*w + y3*v
-				for (int i = 0; i<types.length; ++i) {
-					weights[i+3] = types[i].getWeightW(k).multiply(BigFraction.ONE.subtract(y3)).add(types[i].getWeightV(k).multiply(y3));
-				}
 				String s = rangeOfRSmallEnough ? String.format("%.5f = w_{1k} < c = %.5f", w1.doubleValue(), targetRatio.doubleValue()) : "the range of t(r) -- which is ("+types[t].getSizeLB()+", "+types[t-1].getSizeLB()+"] -- is larger than " + types[types.length-1].getSizeLB();
 				log(String.format("r is medium and "+s+", so check feasibility of simpler dual LP; y3 = "+y3.doubleValue() + ".\n"));
 
@@ -139,13 +154,13 @@ public abstract class DualLPChecker {
 				writeKnapsackFile(k, allSizes, weights);
 
 				//check feasibility of the dual LP
-				KnapsackPattern p = checkSimpleDualLP(allSizes, weights);
+				KnapsackPattern p = checkSimpleDualLP(k, allSizes, weights);
 
 				//output findings
 				if (p!=null)
-					log(String.format("\tHeaviest pattern is " + getOutputWeightString(k, p) + "\n\twith weights " + p.weightString() + ", %.5f (sand)\n\tand total weight %.5f", p.getRemainingSpace().multiply(sandExpansion).doubleValue(), p.getTotalWeightInclSand(sandExpansion).doubleValue()));
+					log(String.format("\t" + (decisionMode ? "Pattern above the target ratio" : "Heaviest pattern") + " is " + getOutputWeightString(k, p) + "\n\twith weights " + p.weightString() + ", %.5f (sand)\n\tand total weight %.5f", p.getRemainingSpace().multiply(sandExpansion).doubleValue(), p.getTotalWeightInclSand(sandExpansion).doubleValue()));
 				else
-					log(String.format("\tNo pattern has weight above %.5f", patternWeightThreshold.doubleValue()));
+					log(String.format("\tNo pattern has weight above %.5f", (decisionMode ? targetRatio : patternWeightThreshold).doubleValue()));
 				return p;
 			} else {
 
@@ -158,56 +173,157 @@ public abstract class DualLPChecker {
 				BigFraction y1 = checkY1(k, w1);
 				BigFraction y2 = checkY2(k, w1);
 
-				//compute weights for non-large items: this is the function omega
-				for (int i = 0; i<types.length; ++i)
-					weights[i+3] = types[i].computeOmega(types[t], y1, y2, y3);
-
 				log(String.format("r is medium and %.5f = w_{1k} >= c = %.5f, so check feasibility of extended dual LP; y3 = "+y3.doubleValue() + ".\n", w1.doubleValue(), targetRatio.doubleValue()));
 
 				//the object check makes sure that patterns q1, q2 are not considered in the search for the heaviest pattern
-				PatternFeasibilityCheck check = new NotQ1Q2(allSizes[1], types[t].getSizeLB()); 
+				PatternFeasibilityCheck check = createDualLPCheck(k);
 
 				//write weights to file for later reference
 				writeKnapsackFile(k, allSizes, weights);
 
 				//check dual LP
 				//first, check simple constraints
+				//(we throw an exception instead of exiting, so that the log messages of cases checked in
+				//parallel can still be written)
 				if (y1.add(targetRatio).compareTo(w1)<0) {
 					log("VERIFICATION FAILED! First constraint (y1+y4 >= w1) is violated in case k="+k+"!");
-					System.exit(1);
+					throw new IllegalStateException("VERIFICATION FAILED! First constraint (y1+y4 >= w1) is violated in case k="+k+"!");
 				}
 				if (y2.divide(2).add(targetRatio).compareTo(w1)<0) {
 					log("VERIFICATION FAILED! Second constraint (y2/2+y4 >= w1) is violated in case k="+k+"!");
-					System.exit(1);
+					throw new IllegalStateException("VERIFICATION FAILED! Second constraint (y2/2+y4 >= w1) is violated in case k="+k+"!");
 				}
 				log("First two constraints of dual LP verified.");
 
 				//now, solve knapsack problem to check other constraints
-				KnapsackSolver solver = new KnapsackSolver(allSizes, weights, check, sandExpansion);
-				KnapsackPattern p = solver.solve(patternWeightThreshold);
+				KnapsackSolver solver = createKnapsackSolver(k, allSizes, weights, check);
+				KnapsackPattern p = solveKnapsack(k, solver, patternWeightThreshold);
 				p = compareWithQ3(p, t, k, y1, y3);
 				
 				//output findings
 				if (p!=null)
-					log(String.format("\tHeaviest pattern is " + getOutputWeightString(k, p) + "\n\twith weights " + p.weightString() + " %.5f (sand)" + "\n\tand total weight %.5f", p.getRemainingSpace().multiply(sandExpansion).doubleValue(), p.getTotalWeightInclSand(sandExpansion).doubleValue()));
+					log(String.format("\t" + (decisionMode ? "Pattern above the target ratio" : "Heaviest pattern") + " is " + getOutputWeightString(k, p) + "\n\twith weights " + p.weightString() + " %.5f (sand)" + "\n\tand total weight %.5f", p.getRemainingSpace().multiply(sandExpansion).doubleValue(), p.getTotalWeightInclSand(sandExpansion).doubleValue()));
 				else
-					log(String.format("\tNo pattern has weight above %.5f", patternWeightThreshold.doubleValue()));
+					log(String.format("\tNo pattern has weight above %.5f", (decisionMode ? targetRatio : patternWeightThreshold).doubleValue()));
 				return p;
 			}
 		}
 	}
 
-	private KnapsackPattern compareWithQ3(KnapsackPattern p, int t, int k, BigFraction y1, BigFraction y3) throws IOException {
+	/**
+	 * Returns the sizes of the knapsack problem of the dual LP for the case k: if r is small, there are two
+	 * large types (2/3, 1] and (1/2, 2/3]; if r is medium, there are three large types (2/3, 1],
+	 * (1-t_t(r), 2/3] and (1/2, 1-t_t(r)]. Then, all types follow.
+	 */
+	protected BigFraction[] createDualLPSizes(int k) {
+		boolean rIsMedium = redSpace[k].compareTo(BigFraction.ONE_THIRD)>0;
+		int numberOfLargeTypes = rIsMedium ? 3 : 2;
+		BigFraction[] allSizes = new BigFraction[types.length+numberOfLargeTypes];
+		allSizes[0] = BigFraction.TWO_THIRDS;
+		if (rIsMedium) allSizes[1] = BigFraction.ONE.subtract(types[computeTypeOfRFromClass(k)-1].getSizeLB());
+		allSizes[numberOfLargeTypes-1] = BigFraction.ONE_HALF;
+		for (int i = 0; i<types.length; ++i) allSizes[i+numberOfLargeTypes] = types[i].getSizeLB();
+		return allSizes;
+	}
+
+	/**
+	 * Returns the weights of the knapsack problem of the dual LP for the case k and the given y3 (see
+	 * createDualLPSizes). These are (1-y3)*w + y3*v, except for the extended dual LP, where the weights of the
+	 * types are given by the function omega, which also depends on y1 and y2. In both cases, every weight is
+	 * an affine function of y3.
+	 */
+	protected BigFraction[] createDualLPWeights(int k, BigFraction y3) {
+		if (!usesExtendedDualLP(k)) return createDualLPWeights(k, null, null, y3);
+		BigFraction w1 = computeWeightOfQ1(computeTypeOfRFromClass(k));
+		return createDualLPWeights(k, checkY1(k, w1), checkY2(k, w1), y3);
+	}
+
+	/**
+	 * Returns the weights of the knapsack problem of the dual LP for the case k and the given values of
+	 * y1, y2, y3; y1 and y2 are only used by the extended dual LP. Every weight is an affine function of
+	 * (y1, y2, y3).
+	 */
+	protected BigFraction[] createDualLPWeights(int k, BigFraction y1, BigFraction y2, BigFraction y3) {
+		boolean rIsMedium = redSpace[k].compareTo(BigFraction.ONE_THIRD)>0;
+		int numberOfLargeTypes = rIsMedium ? 3 : 2;
+		BigFraction[] weights = new BigFraction[types.length+numberOfLargeTypes];
+		//compute weight of large types: (1-y3)*w + y3*v
+		weights[0] = BigFraction.ONE; //w=v=1 for this type
+		if (rIsMedium) weights[1] = BigFraction.ONE; //w=v=1 for this type
+		weights[numberOfLargeTypes-1] = BigFraction.ONE.subtract(y3); //w=1 and v=0 for this type
+		if (usesExtendedDualLP(k)) {
+			//compute weights for non-large items: this is the function omega
+			int t = computeTypeOfRFromClass(k);
+			for (int i = 0; i<types.length; ++i)
+				weights[i+numberOfLargeTypes] = types[i].computeOmega(types[t], y1, y2, y3);
+		} else {
+			for (int i = 0; i<types.length; ++i)
+				weights[i+numberOfLargeTypes] = types[i].getWeightW(k).multiply(BigFraction.ONE.subtract(y3)).add(types[i].getWeightV(k).multiply(y3));
+		}
+		return weights;
+	}
+
+	/**
+	 * Returns whether the case k uses the extended dual LP, i.e., whether r is medium, the range of t(r) is
+	 * small enough and w_{1k} > c.
+	 */
+	protected boolean usesExtendedDualLP(int k) {
+		if (redSpace[k].compareTo(BigFraction.ONE_THIRD)<=0) return false;
+		int t = computeTypeOfRFromClass(k);
+		boolean rangeOfRSmallEnough = types[t-1].getSizeLB().subtract(types[t].getSizeLB()).compareTo(types[types.length-1].getSizeLB())<=0;
+		return rangeOfRSmallEnough && computeWeightOfQ1(t).compareTo(targetRatio)>0;
+	}
+
+	/**
+	 * Returns the side-constraint of the knapsack problem of the dual LP for the case k: for the extended
+	 * dual LP, the patterns q1 and q2 are excluded.
+	 */
+	protected PatternFeasibilityCheck createDualLPCheck(int k) {
+		if (!usesExtendedDualLP(k)) return new AllPatterns();
+		int t = computeTypeOfRFromClass(k);
+		return new NotQ1Q2(BigFraction.ONE.subtract(types[t-1].getSizeLB()), types[t].getSizeLB());
+	}
+
+	/**
+	 * Returns whether checkDualLP solves a knapsack problem for the case k; if r is medium and its type has red
+	 * fraction 0, there is nothing to check.
+	 */
+	protected boolean hasKnapsackProblem(int k) {
+		return redSpace[k].compareTo(BigFraction.ONE_THIRD)<=0 || !types[computeTypeOfRFromClass(k)].getRedFraction().equals(BigFraction.ZERO);
+	}
+
+	/**
+	 * Returns a solver for the knapsack problems of the dual LP for the case k for all values of y3 in
+	 * [0, maxY3] at once, or null if there is no knapsack problem to solve in this case (see checkDualLP).
+	 * The parameter y of the solver is y3/maxY3. The weight of q3 is not considered.
+	 */
+	protected ParametricKnapsackSolver createParametricKnapsackSolver(int k, BigFraction maxY3) {
+		if (!hasKnapsackProblem(k)) return null;
+		return new ParametricKnapsackSolver(createDualLPSizes(k), createDualLPWeights(k, BigFraction.ZERO), createDualLPWeights(k, maxY3),
+				createDualLPCheck(k), sandExpansion);
+	}
+
+	/**
+	 * Returns the weight of the special pattern q3 of the extended dual LP for the case k, where t is the type
+	 * of r; like the other weights, it is an affine function of y1 and y3.
+	 */
+	protected BigFraction computeWeightOfQ3(int t, int k, BigFraction y1, BigFraction y3) {
 		BigFraction sandVolumeInQ3 = (t>0?types[t-1].getSizeLB().subtract(types[t].getSizeLB()):BigFraction.ZERO);
 		BigFraction sandWeightInQ3 = sandExpansion.multiply(sandVolumeInQ3);
 		BigFraction w3k = BigFraction.ONE.add(types[t].getBlueWeight()).add(sandWeightInQ3);
 		BigFraction v3k = BigFraction.ONE.add(types[t].getWeightV(k)).add(sandWeightInQ3);
-		BigFraction weightOfQ3 = BigFraction.ONE.subtract(y3).multiply(w3k).add(y3.multiply(v3k)).add(y1.multiply(BigFraction.ONE.subtract(types[t].getRedFraction()).divide(BigFraction.ONE.add(types[t].getRedFraction()))));
+		return BigFraction.ONE.subtract(y3).multiply(w3k).add(y3.multiply(v3k)).add(y1.multiply(BigFraction.ONE.subtract(types[t].getRedFraction()).divide(BigFraction.ONE.add(types[t].getRedFraction()))));
+	}
+
+	private KnapsackPattern compareWithQ3(KnapsackPattern p, int t, int k, BigFraction y1, BigFraction y3) throws IOException {
+		BigFraction weightOfQ3 = computeWeightOfQ3(t, k, y1, y3);
 		log(String.format("Weight of q3 is low enough at %.5f", weightOfQ3.doubleValue()));
-		if (weightOfQ3.compareTo(patternWeightThreshold)>0 && (p==null || weightOfQ3.compareTo(p.getTotalWeightInclSand(sandExpansion))>0)) {
-			KnapsackPattern p2 = new KnapsackPattern();
-			p2.addItems(BigFraction.ONE.subtract(types[t-1].getSizeLB()), BigFraction.ONE, 1);
-			p2.addItems(types[t].getSizeLB(), types[t].getBlueWeight().multiply(BigFraction.ONE.subtract(y3)).add(types[t].getWeightV(k).multiply(y3)), 1);
+		if (weightOfQ3.compareTo(decisionMode ? targetRatio : patternWeightThreshold)>0 && (p==null || weightOfQ3.compareTo(p.getTotalWeightInclSand(sandExpansion))>0)) {
+			KnapsackPattern p2 = new KnapsackPattern(
+					new BigFraction[] {BigFraction.ONE.subtract(types[t-1].getSizeLB()), types[t].getSizeLB()},
+					new BigFraction[] {BigFraction.ONE, types[t].getBlueWeight().multiply(BigFraction.ONE.subtract(y3)).add(types[t].getWeightV(k).multiply(y3))});
+			p2.addItems(0, 1);
+			p2.addItems(1, 1);
 			if (weightOfQ3.compareTo(p2.getTotalWeightInclSand(sandExpansion))!=0)
 				throw new IllegalStateException();
 			return p2;
@@ -260,7 +376,31 @@ public abstract class DualLPChecker {
 		throw new IllegalStateException("SEVERE ERROR! Couldn't compute type of r from class k=" + k);
 	}
 	
-	protected void checkKPlusOne() throws IOException {
+	/**
+	 * Returns all values of k, sorted in decreasing order of the expected running time of the case.
+	 * The knapsack problems are hardest if the red space is just above 1/3, so we sort by the distance
+	 * of the red space to 1/3.
+	 */
+	protected Integer[] orderCasesByExpectedTime() {
+		Integer[] cases = new Integer[redSpace.length];
+		for (int k = 0; k<cases.length; ++k) cases[k] = k;
+		Arrays.sort(cases, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer k1, Integer k2) {
+				BigFraction d1 = redSpace[k1].subtract(BigFraction.ONE_THIRD).abs();
+				BigFraction d2 = redSpace[k2].subtract(BigFraction.ONE_THIRD).abs();
+				return d1.compareTo(d2);
+			}
+		});
+		return cases;
+	}
+
+	/**
+	 * This method checks the case k=K+1. It stops the program if the case is infeasible, and it returns
+	 * false if the case is still open (see isOpen).
+	 */
+	protected boolean checkKPlusOne() throws IOException {
+		clearOpenUpperBound();
 		KnapsackPattern v = findHeaviestPatternWithoutR();
 
 		if (v!=null && v.getTotalWeightInclSand(sandExpansion).compareTo(targetRatio)>0) {
@@ -278,9 +418,14 @@ public abstract class DualLPChecker {
 			log("\twith weights: " + v.weightString());
 			log(String.format("\tand total weight: %.5f", v.getTotalWeightInclSand(sandExpansion).doubleValue()));
 		} else {
-			log(String.format("\tNo pattern above weight %.5f found!", patternWeightThreshold.doubleValue()));
+			log(String.format("\tNo pattern above weight %.5f found!", (decisionMode ? targetRatio : patternWeightThreshold).doubleValue()));
+		}
+		if (isOpen()) {
+			log("Case k = K+1 is open, as the knapsack search ran out of its budget.\n\n--------------------------------------------\n");
+			return false;
 		}
 		log(String.format("Case k = K+1 verified for target value y4 = %s = %.5f!\n\n--------------------------------------------\n", targetRatio.toString(), targetRatio.doubleValue()));
+		return true;
 	}
 
 	/**
@@ -305,10 +450,192 @@ public abstract class DualLPChecker {
 		writeKnapsackFile(redSpace.length, allSizes, weights);
 
 		//call the knapsack solver
-		KnapsackSolver solver = new KnapsackSolver(allSizes, weights, new AllPatterns(), sandExpansion);
-		return solver.solve(patternWeightThreshold);
+		KnapsackSolver solver = createKnapsackSolver(redSpace.length, allSizes, weights, new AllPatterns());
+		return solveKnapsack(solver, patternWeightThreshold);
 	}
 	
+	/**
+	 * This method creates the knapsack solver for the case k, depending on the engine chosen in Util:
+	 * - "rational": the original solver, which does all computations with BigFractions
+	 * - "integer": the solver that scales all sizes and weights to integers
+	 * - "double": the solver that searches in double arithmetic and evaluates the candidates exactly
+	 * - "interval": the solver that uses interval arithmetic and only computes exactly if intervals overlap
+	 * - "parallel": the integer solver, but the search tree is split among several threads
+	 * - "dp": the solver that uses dynamic programming over the scaled capacity; knapsack problems that it
+	 *   cannot solve (see DPKnapsackSolver.isApplicable()) are solved by the integer solver, and so are all
+	 *   knapsack problems if numberOfCuts is positive, as the dp solver only finds the heaviest pattern
+	 * - "bestfirst": the integer solver, but the search tree is searched in best-first order
+	 * - "mitm": the integer solver, but the items of size at least 1/3 are enumerated up front and the
+	 *   small items are searched with a table of bounds by remaining space
+	 * - "auto": the dp solver if its work is small enough (see DPKnapsackSolver.isApplicable) and
+	 *   numberOfCuts is 0, otherwise the integer solver (this is the default)
+	 * The engine can also be chosen for single cases (see Util.getKnapsackEngine).
+	 */
+	protected KnapsackSolver createKnapsackSolver(int k, BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check) {
+		return createKnapsackSolver(Util.getKnapsackEngine(k), sizes, weights, check);
+	}
+
+	private KnapsackSolver createKnapsackSolver(String engine, BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check) {
+		switch (engine) {
+		case "auto":
+			if (numberOfCuts==0 && DPKnapsackSolver.isApplicable(sizes, weights, check, sandExpansion))
+				return new DPKnapsackSolver(sizes, weights, check, sandExpansion);
+			return new IntegerKnapsackSolver(sizes, weights, check, sandExpansion);
+		case "dp":
+			DPKnapsackSolver solver = new DPKnapsackSolver(sizes, weights, check, sandExpansion);
+			if (numberOfCuts==0 && solver.isApplicable()) return solver;
+			return new IntegerKnapsackSolver(sizes, weights, check, sandExpansion);
+		case "rational":
+			return new KnapsackSolver(sizes, weights, check, sandExpansion);
+		case "integer":
+			return new IntegerKnapsackSolver(sizes, weights, check, sandExpansion);
+		case "double":
+			return new DoubleKnapsackSolver(sizes, weights, check, sandExpansion);
+		case "interval":
+			return new IntervalKnapsackSolver(sizes, weights, check, sandExpansion);
+		case "parallel":
+			return new ParallelKnapsackSolver(sizes, weights, check, sandExpansion);
+		case "bestfirst":
+			return new BestFirstKnapsackSolver(sizes, weights, check, sandExpansion);
+		case "mitm":
+			return new MeetInTheMiddleKnapsackSolver(sizes, weights, check, sandExpansion);
+		default:
+			throw new IllegalArgumentException("Unknown knapsack engine " + engine);
+		}
+	}
+
+	/**
+	 * Solves the knapsack problem with the given solver and writes its statistics to the log (if it
+	 * collects any). In decision mode, the solver only decides whether there is a pattern above the target
+	 * ratio, and the pattern returned is any such pattern instead of the heaviest one.
+	 */
+	protected KnapsackPattern solveKnapsack(KnapsackSolver solver, BigFraction patternWeightThreshold) throws IOException {
+		solver.setBudget(nodeBudget, timeBudget);
+		countKnapsackSearch();
+		KnapsackPattern p = decisionMode ? solver.findPatternAbove(targetRatio) : solver.solve(patternWeightThreshold);
+		String statistics = solver.getStatistics();
+		if (statistics!=null) log(statistics);
+		if (!solver.isSearchComplete()) {
+			BigFraction upperBound = solver.getUpperBound();
+			log(String.format("\tThe knapsack search ran out of its budget: no pattern is heavier than %.5f (gap %.5f)",
+					upperBound.doubleValue(), solver.getGap().doubleValue()));
+			BigFraction old = openUpperBound.get();
+			if (old==null || upperBound.compareTo(old)>0) openUpperBound.set(upperBound);
+		}
+		return p;
+	}
+
+	/**
+	 * Counts a knapsack search; every search of a knapsack solver (including the parametric one) has to be
+	 * counted like this, so that the different search strategies can be compared.
+	 */
+	protected void countKnapsackSearch() {
+		numberOfKnapsackSearches.incrementAndGet();
+	}
+
+	protected long getNumberOfKnapsackSearches() {
+		return numberOfKnapsackSearches.get();
+	}
+
+	/**
+	 * Forgets the upper bounds of the knapsack searches of this thread that ran out of their budget; this
+	 * is called before a case is checked.
+	 */
+	protected void clearOpenUpperBound() {
+		openUpperBound.remove();
+	}
+
+	/**
+	 * Checks whether a knapsack search of this thread since the last call of clearOpenUpperBound ran out of
+	 * its budget without proving that no pattern is heavier than the target ratio. If the search did not
+	 * find such a pattern either, the case is still open.
+	 */
+	protected boolean isOpen() {
+		BigFraction upperBound = openUpperBound.get();
+		return upperBound!=null && upperBound.compareTo(targetRatio)>0;
+	}
+
+	/**
+	 * Solves the knapsack problem of the case k with the given solver. The heaviest patterns found so far
+	 * for the cases k-1, k, k+1 are used as start patterns, and the result is stored for later searches.
+	 */
+	protected KnapsackPattern solveKnapsack(int k, KnapsackSolver solver, BigFraction patternWeightThreshold) throws IOException {
+		for (int j = k-1; j<=k+1; ++j) {
+			KnapsackPattern start = heaviestPatternOfCase.get(j);
+			if (start!=null) solver.addStartPattern(start);
+		}
+		KnapsackPattern p = solveKnapsack(solver, patternWeightThreshold);
+		if (p!=null) heaviestPatternOfCase.put(k, p);
+		if (numberOfCuts>0) collectViolatingPatterns(k, solver, p);
+		return p;
+	}
+
+	/**
+	 * If the pattern p found by the solver violates the dual LP, this method collects the numberOfCuts
+	 * heaviest patterns above the target ratio in a second search of the same problem; they are stored for
+	 * getViolatingPatterns. If the dual LP is feasible, the first search suffices.
+	 */
+	private void collectViolatingPatterns(int k, KnapsackSolver solver, KnapsackPattern p) throws IOException {
+		final List<KnapsackPattern> patterns = new LinkedList<>();
+		if (p!=null && p.getTotalWeightInclSand(sandExpansion).compareTo(targetRatio)>0) {
+			countKnapsackSearch();
+			solver.enumeratePatterns(targetRatio, numberOfCuts, new Consumer<KnapsackPattern>() {
+
+				@Override
+				public void accept(KnapsackPattern pattern) {
+					patterns.add(pattern);
+				}
+			});
+		}
+		violatingPatternsOfCase.put(k, patterns);
+	}
+
+	/**
+	 * Returns the patterns above the target ratio in the last knapsack problem of the case k, the heaviest
+	 * one first. Unless numberOfCuts is positive, they are not collected, so the list is empty.
+	 */
+	protected List<KnapsackPattern> getViolatingPatterns(int k) {
+		List<KnapsackPattern> patterns = violatingPatternsOfCase.get(k);
+		return patterns==null ? new LinkedList<KnapsackPattern>() : patterns;
+	}
+
+	/**
+	 * The weight of the pattern p changes by V-W per unit of y3, where W and V are its total w- and v-weights
+	 * (the same slope that decides the direction of the binary search). As p is heavier than the target ratio
+	 * at y3, it stays above the target ratio for all y3 beyond the point where this line crosses the target
+	 * ratio, so the interval is cut there. Returns false if the weight does not depend on y3, i.e., if p
+	 * violates the dual LP for every y3.
+	 */
+	protected boolean cutInterval(BigFraction[] interval, KnapsackPattern p, int k, BigFraction y3) {
+		BigFraction totalW = p.getTotalWeightWInclSand(types, k, sandExpansion);
+		BigFraction totalV = p.getTotalWeightVInclSand(types, k, sandExpansion);
+		BigFraction slope = totalV.subtract(totalW);
+		if (slope.compareTo(BigFraction.ZERO)==0) return false;
+		BigFraction cut = y3.add(targetRatio.subtract(p.getTotalWeightInclSand(sandExpansion)).divide(slope));
+		if (slope.compareTo(BigFraction.ZERO)>0) {
+			if (cut.compareTo(interval[1])<0) interval[1] = cut;
+		} else {
+			if (cut.compareTo(interval[0])>0) interval[0] = cut;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the dyadic rational with the smallest denominator strictly between lower and upper (which
+	 * must be non-negative and smaller than upper). The binary search tests these values instead of the exact midpoint of
+	 * the cut interval, as they keep the numbers in the knapsack problems small.
+	 */
+	protected static BigFraction simplestDyadicBetween(BigFraction lower, BigFraction upper) {
+		BigInteger denominator = BigInteger.ONE;
+		while (true) {
+			//the smallest multiple of 1/denominator above lower (which is non-negative in the binary search)
+			BigFraction scaledLower = lower.multiply(denominator);
+			BigFraction candidate = new BigFraction(scaledLower.getNumerator().divide(scaledLower.getDenominator()).add(BigInteger.ONE), denominator);
+			if (candidate.compareTo(upper)<0) return candidate;
+			denominator = denominator.shiftLeft(1);
+		}
+	}
+
 	protected abstract BigFraction checkY1(int k, BigFraction w1);
 	protected abstract BigFraction checkY2(int k, BigFraction w1);
 	protected abstract void checkY3(BigFraction y3, int k);
@@ -354,28 +681,70 @@ public abstract class DualLPChecker {
 	 * This is for printing messages to system.out and also to a protocol file.
 	 */
 	protected void log(String msg) throws IOException {
+		StringBuilder buffer = logBuffer.get();
+		if (buffer!=null) {
+			buffer.append(msg).append("\n");
+			return;
+		}
 		System.out.println(msg);
 		if (writer!=null) {
 			writer.write(msg + "\n");
 		}
 	}
+
+	/**
+	 * After calling this method, all log messages of the current thread are collected until
+	 * stopLogBuffer is called. This way, cases checked in parallel can write their messages in order.
+	 */
+	protected void startLogBuffer() {
+		logBuffer.set(new StringBuilder());
+	}
+
+	/**
+	 * Returns all log messages collected by the current thread since startLogBuffer was called; from
+	 * now on, messages are written immediately again.
+	 */
+	protected String stopLogBuffer() {
+		String messages = logBuffer.get().toString();
+		logBuffer.remove();
+		return messages;
+	}
+
+	/**
+	 * Writes log messages that were collected before (see stopLogBuffer). If the current thread collects
+	 * its messages itself, they are appended to its buffer.
+	 */
+	protected void writeLog(String messages) throws IOException {
+		StringBuilder buffer = logBuffer.get();
+		if (buffer!=null) {
+			buffer.append(messages);
+			return;
+		}
+		System.out.print(messages);
+		if (writer!=null) {
+			writer.write(messages);
+		}
+	}
 	
 	protected String getOutputWeightString(int k, KnapsackPattern maxWeightPattern) {
 		String s = "";
-		for (KnapsackPattern.Entry e : maxWeightPattern.items) {
+		for (int i = 0; i<maxWeightPattern.getNumberOfTypes(); ++i) {
+			int type = maxWeightPattern.getType(i);
+			BigFraction size = maxWeightPattern.getSize(type);
+			int cardinality = maxWeightPattern.getCardinality(type);
 			if (!s.isEmpty()) s += " , ";
 			TypeInfo t = null;
 			for (TypeInfo tt : types) {
-				if (tt.getSizeLB().equals(e.size)) {
+				if (tt.getSizeLB().equals(size)) {
 					t = tt;
 					break;
 				}
 			}
-			if (t==null && e.size.compareTo(BigFraction.ONE_HALF)<0) throw new IllegalStateException("Couldn't find type of size " + s);
+			if (t==null && size.compareTo(BigFraction.ONE_HALF)<0) throw new IllegalStateException("Couldn't find type of size " + s);
 			if (t!=null)
-				s += e.size + " [" + e.cardinality + " times; " + (t.isWHigh(k) ? "high w, " : "low w, ") + (t.isVHigh(k) ? "high v]" : "low v]");
+				s += size + " [" + cardinality + " times; " + (t.isWHigh(k) ? "high w, " : "low w, ") + (t.isVHigh(k) ? "high v]" : "low v]");
 			else
-				s += e.size + " [" + e.cardinality + " times]";
+				s += size + " [" + cardinality + " times]";
 		}
 		return s;
 	}
@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+/**
+ *
+ * This class answers the query of findMaxExpansionFitting: given a position i in the permutation of
+ * types (which is sorted in descending order of expansion) and the remaining space r of a pattern, find
+ * the first position j >= i such that the type at position j fits strictly into r. This type has the
+ * maximum expansion of all types at or after position i that fit.
+ *
+ * The index is built once per solve. It stores the rank of every size among all distinct sizes and a
+ * sparse table with the minimum rank in each block [j, j + 2^l) of positions. A query first finds the
+ * number of distinct sizes below r by binary search and then skips blocks in which no type fits, so it
+ * needs O(log n) comparisons and does not allocate any objects.
+ *
+ * @param <T> the type in which the sizes are given (e.g. BigFraction or scaled BigIntegers)
+ */
+public class ExpansionIndex<T extends Comparable<T>> {
+
+	private final T[] distinctSizes; //all distinct sizes in increasing order
+	private final int[][] minRank; //minRank[l][j] is the minimum rank of the sizes at positions j, ..., j+2^l-1
+
+	/**
+	 * Builds the index.
+	 * @param size the sizes of the types, indexed w.r.t. the permutation
+	 */
+	public ExpansionIndex(T[] size) {
+		int n = size.length;
+
+		//compute the distinct sizes and the rank of each size among them
+		T[] sorted = size.clone();
+		Arrays.sort(sorted);
+		int numberOfDistinctSizes = 0;
+		for (int i = 0; i<n; ++i)
+			if (numberOfDistinctSizes==0 || sorted[numberOfDistinctSizes-1].compareTo(sorted[i])!=0)
+				sorted[numberOfDistinctSizes++] = sorted[i];
+		distinctSizes = Arrays.copyOf(sorted, numberOfDistinctSizes);
+
+		//build the sparse table; level 0 contains the ranks themselves
+		int levels = 1;
+		while ((1<<levels)<=n) ++levels;
+		minRank = new int[levels][];
+		minRank[0] = new int[n];
+		for (int i = 0; i<n; ++i)
+			minRank[0][i] = Arrays.binarySearch(distinctSizes, size[i]);
+		for (int l = 1; l<levels; ++l) {
+			int half = 1<<(l-1);
+			minRank[l] = new int[n-(1<<l)+1];
+			for (int j = 0; j<minRank[l].length; ++j)
+				minRank[l][j] = Math.min(minRank[l-1][j], minRank[l-1][j+half]);
+		}
+	}
+
+	/**
+	 * Returns the number of distinct sizes that are strictly smaller than the given remaining space,
+	 * i.e., the types that fit are exactly the types with a rank below the returned value.
+	 */
+	public int numberOfFittingSizes(T remainingSpace) {
+		int lo = 0, hi = distinctSizes.length;
+		while (lo<hi) {
+			int mid = (lo+hi)>>>1;
+			if (distinctSizes[mid].compareTo(remainingSpace)<0) lo = mid+1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the first position at or after the given position whose type has a rank below
+	 * numberOfFittingSizes, or the number of types if there is no such position.
+	 */
+	public int firstFitting(int position, int numberOfFittingSizes) {
+		int n = minRank[0].length;
+		for (int l = minRank.length-1; l>=0; --l) {
+			//skip the block starting at position if no type in it fits
+			if (position+(1<<l)<=n && minRank[l][position]>=numberOfFittingSizes)
+				position += 1<<l;
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the first position at or after the given position whose type fits strictly into the
+	 * given remaining space, or the number of types if there is no such position.
+	 */
+	public int firstFitting(int position, T remainingSpace) {
+		return firstFitting(position, numberOfFittingSizes(remainingSpace));
+	}
+}
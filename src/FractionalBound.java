@@ -0,0 +1,31 @@
+import java.math.BigInteger;
+
+
+/**
+ * This bound solves the LP relaxation in which every type can be packed at most as often as it fits
+ * into the remaining space on its own. The types are taken in the order of the permutation (i.e., by
+ * decreasing expansion) as often as possible; the first type that does not fit that often any more is
+ * packed fractionally. As the first type that fits can never fill the remaining space completely
+ * (items have to fit strictly), this bound is never larger than the one of DantzigBound.
+ *
+ */
+public class FractionalBound implements KnapsackBound {
+
+	@Override
+	public boolean canBePruned(IntegerKnapsackSolver solver, int typeIndexInPermutation, BigInteger remainingSpace,
+			BigInteger totalWeight, BigInteger maxWeightFound) {
+		BigInteger space = remainingSpace;
+		BigInteger weight = totalWeight;
+		int i = solver.firstFitting(typeIndexInPermutation, remainingSpace);
+		while (i<solver.typePermutation.length) {
+			//the number of items of this type that fit into the remaining space of the partial pattern
+			BigInteger number = BigInteger.valueOf(solver.howManyItemsFit(i, remainingSpace));
+			BigInteger size = solver.scaledSize[i].multiply(number);
+			if (size.compareTo(space)>0) break; //this type is packed fractionally
+			space = space.subtract(size);
+			weight = weight.add(solver.scaledWeight[i].multiply(number));
+			i = solver.firstFitting(i+1, remainingSpace);
+		}
+		return solver.isHeavierThanFilling(maxWeightFound, weight, space, i);
+	}
+}
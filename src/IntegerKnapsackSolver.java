@@ -0,0 +1,723 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ *
+ * This knapsack solver finds the same heaviest pattern as KnapsackSolver, but it does not use
+ * BigFraction arithmetic during the search. Instead, all sizes are scaled by the least common
+ * denominator of the sizes (so the capacity of a bin becomes an integer C) and all weights are scaled
+ * by the least common denominator of the weights. Every quantity in the search is then an integer
+ * numerator over one of a few fixed denominators, so no gcd has to be computed at any node.
+ *
+ * The numerators are stored as BigIntegers: for our parameter files the common denominators of the
+ * sizes are far beyond the range of a long (the sizes 1/n for all n up to 4000 appear as types).
+ *
+ */
+public class IntegerKnapsackSolver extends KnapsackSolver implements ScaledTypes {
+
+	public IntegerKnapsackSolver(BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check,
+			BigFraction sandExpansion) {
+		super(sizes, weights, check, sandExpansion);
+		statistics = Util.knapsackStatistics ? new SearchStatistics() : null;
+		incumbent = new AtomicReference<>();
+		searchStopped = new AtomicBoolean();
+	}
+
+	/**
+	 * Creates the solver for a sub-problem of the given solver in which no items of the given size are
+	 * packed (see searchWithoutConflicts). It shares the permutation, the scaled sizes and weights, the
+	 * incumbent and the statistics with the given solver, so it must be created after the given solver
+	 * has scaled its input. As it never calls the check, it uses its own transposition table.
+	 */
+	private IntegerKnapsackSolver(IntegerKnapsackSolver problem, BigFraction excludedSize) {
+		super(problem.size, problem.weight, new AllPatterns(), problem.sandExpansion);
+		statistics = problem.statistics;
+		incumbent = problem.incumbent;
+		searchStopped = problem.searchStopped;
+		stopAtFirstPattern = problem.stopAtFirstPattern;
+		budget = problem.budget;
+
+		typePermutation = problem.typePermutation;
+		scaledSize = problem.scaledSize.clone();
+		for (int i = 0; i<typePermutation.length; ++i)
+			if (size[typePermutation[i]].equals(excludedSize)) scaledSize[i] = problem.capacity; //never fits strictly
+		scaledWeight = problem.scaledWeight;
+		scaledSandExpansion = problem.scaledSandExpansion;
+		capacity = problem.capacity;
+		quotient = problem.quotient;
+		expansionIndex = new ExpansionIndex<>(scaledSize);
+		transpositionTable = Util.transpositionTableSize>0 ? new TranspositionTable<BigInteger>(Util.transpositionTableSize) : null;
+	}
+
+	/*
+	 * All weights of (partial) patterns are measured in units of 1/Q, where Q = D_w * C * sandDenominator,
+	 * D_w is the common denominator of the weights and C is the common denominator of the sizes. With
+	 * this choice, the total weight of a pattern including sand is always an integer in these units.
+	 */
+	protected BigInteger[] scaledSize; //size of the types in units of 1/C, indexed w.r.t. the permutation
+	protected BigInteger[] scaledWeight; //weight of the types in units of 1/Q, indexed w.r.t. the permutation
+	protected BigInteger scaledSandExpansion; //weight of sand of size 1/C in units of 1/Q
+	protected BigInteger capacity; //C
+	protected BigInteger quotient; //Q
+	protected ExpansionIndex<BigInteger> expansionIndex; //finds the first type in the permutation that fits
+
+	/**
+	 * The number of types that firstFitting checks one by one before it asks the expansion index.
+	 */
+	private static final int LINEAR_SEARCH_LENGTH = 4;
+
+	protected final KnapsackBound bound = createBound(Util.knapsackBound); //the bound used for pruning
+	protected final SearchStatistics statistics;
+
+	/**
+	 * The heaviest pattern found so far and its weight (in units of 1/Q); before a pattern is found, the
+	 * weight is the threshold. The object is replaced atomically, so that several threads can search
+	 * different parts of the search tree at the same time (see ParallelKnapsackSolver).
+	 */
+	private final AtomicReference<Incumbent> incumbent;
+	protected KnapsackPattern emptyPattern; //only used if the check needs to see the pattern
+
+	/**
+	 * Upper bounds (in units of 1/Q) on the weight that can be added in sub-problems that were already
+	 * searched. This is null if the check needs to see the pattern, as then the items that can be added
+	 * do not only depend on the sub-problem.
+	 */
+	protected TranspositionTable<BigInteger> transpositionTable;
+
+	/**
+	 * Whether the search stops at the first complete pattern that reaches the weight of the incumbent
+	 * (see findPatternAbove), and whether such a pattern was found. The flag is checked by all threads.
+	 */
+	private boolean stopAtFirstPattern;
+	private PatternEnumeration enumeration; //not null while enumeratePatterns runs
+	protected final AtomicBoolean searchStopped;
+	protected SearchBudget budget; //the budget of the current search; null if it has none (see setBudget)
+
+	@Override
+	public KnapsackPattern solve(BigFraction patternWeightThreshold) throws IOException {
+		return solve(patternWeightThreshold, false);
+	}
+
+	/**
+	 * This method decides whether there is a pattern with a total weight strictly above the given bound.
+	 * The bound is used directly as pruning threshold, and the search stops at the first pattern above it.
+	 */
+	@Override
+	public KnapsackPattern findPatternAbove(BigFraction bound) throws IOException {
+		return solve(bound, true);
+	}
+
+	private KnapsackPattern solve(BigFraction patternWeightThreshold, boolean decide) {
+		//create the permutation that sorts types in descending order of expansion
+		typePermutation = createPermutation();
+
+		//scale all sizes and weights to integers
+		scaleInput();
+
+		//the threshold is rounded down; this might let us accept some patterns slightly below the threshold,
+		//which we discard again at the end
+		BigInteger threshold = scaleThreshold(patternWeightThreshold);
+		//as all weights are integers, a pattern is strictly above the bound iff it reaches the next integer
+		if (decide) threshold = threshold.add(BigInteger.ONE);
+		incumbent.set(new Incumbent(threshold, null));
+		stopAtFirstPattern = decide;
+		searchStopped.set(false);
+		budget = maxNodes>0 || maxMillis>0 ? new SearchBudget(maxNodes, maxMillis) : null;
+		lowerBound = upperBound = null;
+
+		//if there is a start pattern that is heavy enough, it is the first incumbent
+		int[] startCardinality = heaviestStartPattern();
+		if (startCardinality!=null) {
+			BigInteger startWeight = scaledTotalWeight(startCardinality);
+			if (startWeight.compareTo(threshold)>=0) {
+				incumbent.set(new Incumbent(startWeight, startCardinality));
+				searchStopped.set(decide);
+			}
+		}
+		emptyPattern = check instanceof AllPatterns ? null : new KnapsackPattern(getItemTypes());
+		transpositionTable = check instanceof AllPatterns && Util.transpositionTableSize>0
+				? new TranspositionTable<>(Util.transpositionTableSize) : null;
+
+		//start the search for the heaviest pattern
+		if (!searchStopped.get()) search();
+
+		//if the budget was exhausted, the subtrees that were not searched completely were collected
+		if (budget!=null && budget.isExhausted()) {
+			lowerBound = new BigFraction(incumbent.get().weight, quotient);
+			BigFraction openBound = budget.getOpenBound();
+			upperBound = lowerBound;
+			if (openBound!=null && openBound.divide(quotient).compareTo(upperBound)>0) upperBound = openBound.divide(quotient);
+		}
+
+		int[] heaviestCardinality = incumbent.get().cardinality;
+		if (heaviestCardinality==null) return null;
+		KnapsackPattern heaviestPattern = createPattern(heaviestCardinality);
+		int c = heaviestPattern.getTotalWeightInclSand(sandExpansion).compareTo(patternWeightThreshold);
+		if (c<0 || (decide && c==0)) return null;
+		return heaviestPattern;
+	}
+
+	/**
+	 * This method enumerates the patterns above the threshold in one depth-first search. If only the
+	 * maxNumberOfPatterns heaviest patterns are needed, they are kept in a min-heap; once it is full, its
+	 * lightest pattern is the pruning threshold, so the threshold grows during the search just like the
+	 * weight of the heaviest pattern in solve. The search always runs in the calling thread and does not
+	 * use the strategy of subclasses (see search). The transposition table is not used, as its bounds are
+	 * only valid if no pattern heavier than the pruning threshold is ever found. Like solve, the search only
+	 * considers the types of the permutation, so patterns with types of a lower expansion than the sand or
+	 * with dominated types (see removeDominatedTypes) are not enumerated; there is always a pattern at least
+	 * as heavy without them.
+	 */
+	@Override
+	public void enumeratePatterns(BigFraction threshold, int maxNumberOfPatterns, Consumer<KnapsackPattern> consumer) {
+		typePermutation = createPermutation();
+		scaleInput();
+		incumbent.set(new Incumbent(scaleThreshold(threshold).add(BigInteger.ONE), null));
+		stopAtFirstPattern = false;
+		searchStopped.set(false);
+		budget = null;
+		lowerBound = upperBound = null;
+		emptyPattern = check instanceof AllPatterns ? null : new KnapsackPattern(getItemTypes());
+		transpositionTable = null;
+		if (maxNumberOfPatterns<=0) return;
+
+		enumeration = new PatternEnumeration(maxNumberOfPatterns, consumer);
+		searchSubtree(0, capacity, BigInteger.ZERO, new int[typePermutation.length], emptyPattern);
+		enumeration.finish();
+		enumeration = null;
+	}
+
+	/**
+	 * Returns the given weight threshold in units of 1/Q, rounded down.
+	 */
+	private BigInteger scaleThreshold(BigFraction threshold) {
+		BigFraction scaledThreshold = threshold.multiply(quotient);
+		BigInteger scaled = scaledThreshold.getNumerator().divide(scaledThreshold.getDenominator());
+		if (scaledThreshold.compareTo(BigFraction.ZERO)<0) scaled = scaled.subtract(BigInteger.ONE);
+		return scaled;
+	}
+
+	/**
+	 * This method searches the whole search tree, starting with an empty pattern.
+	 */
+	protected void search() {
+		if (check instanceof NotQ1Q2 && Util.splitConflicts) {
+			searchWithoutConflicts((NotQ1Q2) check);
+			return;
+		}
+		searchSubtree(0, capacity, BigInteger.ZERO, new int[typePermutation.length], emptyPattern);
+	}
+
+	/**
+	 * NotQ1Q2 only forbids patterns that contain items of both of its sizes, so every allowed pattern
+	 * does not contain items of one of these sizes. Thus, the search tree is split into the two sub-problems
+	 * without the items of each size. They do not need the check, and they are searched in parallel with
+	 * one shared incumbent. As the sub-problems use the permutation of this solver, equally heavy patterns
+	 * are compared in the same order as in the whole search tree (a pattern that contains neither of the
+	 * sizes is found in both sub-problems, which does not change the result).
+	 */
+	private void searchWithoutConflicts(NotQ1Q2 notQ1Q2) {
+		final IntegerKnapsackSolver withoutLarge = new IntegerKnapsackSolver(this, notQ1Q2.getSizeOfLarge());
+		final IntegerKnapsackSolver withoutTypeOfR = new IntegerKnapsackSolver(this, notQ1Q2.getSizeOfTypeOfR());
+		pool.invoke(new RecursiveAction() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(new SubproblemTask(withoutTypeOfR), new SubproblemTask(withoutLarge));
+			}
+		});
+	}
+
+	/**
+	 * The pool that searches the sub-problems of searchWithoutConflicts.
+	 */
+	private static final ForkJoinPool pool = new ForkJoinPool(Util.numberOfThreads);
+
+	/**
+	 * This task searches the whole search tree of a sub-problem.
+	 */
+	private static class SubproblemTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final IntegerKnapsackSolver solver;
+
+		SubproblemTask(IntegerKnapsackSolver solver) {
+			this.solver = solver;
+		}
+
+		@Override
+		protected void compute() {
+			solver.searchSubtree(0, solver.capacity, BigInteger.ZERO, new int[solver.typePermutation.length], null);
+		}
+	}
+
+	/**
+	 * This method computes the common denominators and the scaled integer sizes and weights of all types
+	 * in the permutation.
+	 */
+	private void scaleInput() {
+		BigInteger sizeDenominator = Scaling.commonDenominator(size, typePermutation);
+		BigInteger weightDenominator = Scaling.commonDenominator(weight, typePermutation);
+		capacity = sizeDenominator;
+		quotient = weightDenominator.multiply(capacity).multiply(sandExpansion.getDenominator());
+		scaledSandExpansion = sandExpansion.getNumerator().multiply(weightDenominator);
+
+		scaledSize = new BigInteger[typePermutation.length];
+		scaledWeight = new BigInteger[typePermutation.length];
+		for (int i = 0; i<typePermutation.length; ++i) {
+			scaledSize[i] = Scaling.scale(size[typePermutation[i]], capacity);
+			scaledWeight[i] = Scaling.scale(weight[typePermutation[i]], quotient);
+		}
+		expansionIndex = new ExpansionIndex<>(scaledSize);
+	}
+
+	/**
+	 * Computes the weight (including sand) of the complete pattern with the given cardinalities, which are
+	 * indexed w.r.t. the permutation, in units of 1/Q.
+	 */
+	protected BigInteger scaledTotalWeight(int[] cardinality) {
+		BigInteger space = capacity;
+		BigInteger weight = BigInteger.ZERO;
+		for (int i = 0; i<cardinality.length; ++i) {
+			if (cardinality[i]==0) continue;
+			space = space.subtract(scaledSize[i].multiply(BigInteger.valueOf(cardinality[i])));
+			weight = weight.add(scaledWeight[i].multiply(BigInteger.valueOf(cardinality[i])));
+		}
+		return weight.add(space.multiply(scaledSandExpansion));
+	}
+
+	/**
+	 * This method searches the subtree of the given (partial) pattern for the heaviest pattern; it visits
+	 * the same nodes in the same order as the recursive method in KnapsackSolver. Instead of recursion, it
+	 * uses an explicit stack with one entry per level of the search tree: the number of items of the type
+	 * at this level is stored in the cardinality array, and the remaining space and weight of the partial
+	 * pattern before this type is added are stored in the arrays space and weight.
+	 * It only changes the given cardinality array and pattern, so it can be called for different subtrees
+	 * at the same time. If the budget is exhausted, the search stops and the bounds of the subtrees that
+	 * are still open are added to the budget (see addOpenFrames).
+	 * @param typeIndexInPermutation the type-index (w.r.t. the permutation) of the next item to add to the pattern
+	 * @param remainingSpace the space left in the current pattern (in units of 1/C)
+	 * @param totalWeight the weight of the current pattern without sand (in units of 1/Q)
+	 * @param cardinality the current pattern, indexed w.r.t. the permutation
+	 * @param pattern the current pattern as KnapsackPattern; this is null if the check does not need it
+	 */
+	protected void searchSubtree(int typeIndexInPermutation, BigInteger remainingSpace, BigInteger totalWeight,
+			int[] cardinality, KnapsackPattern pattern) {
+		int root = typeIndexInPermutation;
+		BigInteger[] space = new BigInteger[typePermutation.length+1];
+		BigInteger[] weight = new BigInteger[typePermutation.length+1];
+		space[root] = remainingSpace;
+		weight[root] = totalWeight;
+
+		int level = root;
+		boolean newNode = true; //whether we enter the node at this level or come back to it from a child
+		while (level>=root && !searchStopped.get()) {
+			if (newNode) {
+				stopIfInterrupted();
+				if (budget!=null && budget.countNode()) {
+					searchStopped.set(true);
+					break;
+				}
+				//decide whether we need to add items of the type at this level
+				boolean expand = !canBePruned(level, space[level], weight[level], pattern);
+				if (expand && level==typePermutation.length) { //we have added all item sizes - we are done
+					patternFound(weight[level].add(space[level].multiply(scaledSandExpansion)), cardinality);
+					expand = false;
+				}
+				if (expand && canBePrunedByTable(level, space[level], weight[level])) expand = false;
+
+				if (expand) {
+					//add as many items of the current type as possible and go to the next level
+					int numberOfItemsToAdd = howManyItemsFit(level, space[level], pattern);
+					BigInteger n = BigInteger.valueOf(numberOfItemsToAdd);
+					space[level+1] = space[level].subtract(scaledSize[level].multiply(n));
+					weight[level+1] = weight[level].add(scaledWeight[level].multiply(n));
+					if (pattern!=null) pattern.addItems(typePermutation[level], numberOfItemsToAdd);
+					cardinality[level] = numberOfItemsToAdd;
+					level++;
+				} else {
+					newNode = false;
+					level--;
+				}
+			} else if (cardinality[level]>0) {
+				//remove one item of the current type and go to the next level again
+				space[level+1] = space[level+1].add(scaledSize[level]);
+				weight[level+1] = weight[level+1].subtract(scaledWeight[level]);
+				cardinality[level]--;
+				if (pattern!=null) pattern.removeItem(typePermutation[level]);
+				newNode = true;
+				level++;
+			} else {
+				//all numbers of items of the current type were tried
+				storeInTable(level, space[level], weight[level]);
+				level--;
+			}
+		}
+		if (budget!=null && budget.isExhausted()) addOpenFrames(root, level, newNode, space, weight, cardinality);
+	}
+
+	/**
+	 * Adds the bounds of the subtrees that searchSubtree did not finish to the budget. The search stopped
+	 * before it entered the node at the given level (if newNode is set) or before it went on with the next
+	 * smaller number of items at this level. At every level above, the subtrees with fewer items of the type
+	 * of this level are still open. As the types are sorted by expansion, none of them is heavier than the
+	 * one with one item less than the current number, with the remaining space filled with the maximum
+	 * expansion of the types after this level that fit if there are no items of this type.
+	 */
+	private void addOpenFrames(int root, int level, boolean newNode, BigInteger[] space, BigInteger[] weight,
+			int[] cardinality) {
+		if (newNode) addOpenSubtree(level, space[level], weight[level]);
+		for (int l = root; l<(newNode ? level : level+1); ++l) {
+			if (cardinality[l]==0) continue;
+			BigInteger n = BigInteger.valueOf(cardinality[l]-1);
+			BigInteger remainingSpace = space[l].subtract(scaledSize[l].multiply(n));
+			BigInteger totalWeight = weight[l].add(scaledWeight[l].multiply(n));
+			budget.addOpenBound(fillingBound(totalWeight, remainingSpace, firstFitting(l+1, space[l])));
+		}
+	}
+
+	/**
+	 * Adds the Dantzig bound of the subtree of the given (partial) pattern to the budget if the budget is
+	 * exhausted, i.e., if the subtree will not be searched.
+	 */
+	protected void addOpenSubtree(int typeIndexInPermutation, BigInteger remainingSpace, BigInteger totalWeight) {
+		if (budget==null || !budget.isExhausted()) return;
+		budget.addOpenBound(fillingBound(totalWeight, remainingSpace, firstFitting(typeIndexInPermutation, remainingSpace)));
+	}
+
+	/**
+	 * Returns totalWeight + remainingSpace * expansion (in units of 1/Q), where expansion is the expansion of
+	 * the type at the given position of the permutation, or the sand expansion if the position is the length
+	 * of the permutation (see isHeavierThanFilling).
+	 */
+	protected BigFraction fillingBound(BigInteger totalWeight, BigInteger remainingSpace, int typeIndexInPermutation) {
+		if (typeIndexInPermutation==typePermutation.length)
+			return new BigFraction(totalWeight.add(remainingSpace.multiply(scaledSandExpansion)));
+		return new BigFraction(totalWeight.multiply(scaledSize[typeIndexInPermutation])
+				.add(remainingSpace.multiply(scaledWeight[typeIndexInPermutation])), scaledSize[typeIndexInPermutation]);
+	}
+
+	/**
+	 * Checks whether the sub-problem of the given (partial) pattern was already searched and the bound
+	 * stored for it shows that no completion of this pattern is heavier than the heaviest pattern found
+	 * so far. The comparison is strict, so no pattern of the same weight is pruned either.
+	 */
+	protected boolean canBePrunedByTable(int typeIndexInPermutation, BigInteger remainingSpace, BigInteger totalWeight) {
+		if (transpositionTable==null) return false;
+		BigInteger bound = transpositionTable.get(typeIndexInPermutation, remainingSpace);
+		return bound!=null && incumbent.get().weight.compareTo(totalWeight.add(bound))>0;
+	}
+
+	/**
+	 * Stores the bound for the sub-problem of the given (partial) pattern after its subtree was searched.
+	 * Every complete pattern in the subtree was either pruned because it is lighter than the heaviest
+	 * pattern found at that time, or it was compared to that pattern; as the heaviest weight found only
+	 * grows, no completion adds more than maxWeightFound - totalWeight.
+	 */
+	protected void storeInTable(int typeIndexInPermutation, BigInteger remainingSpace, BigInteger totalWeight) {
+		if (transpositionTable==null) return;
+		transpositionTable.put(typeIndexInPermutation, remainingSpace, incumbent.get().weight.subtract(totalWeight));
+	}
+
+	/**
+	 * Returns the weight of the heaviest pattern found so far (in units of 1/Q), or the threshold if no
+	 * pattern was found yet.
+	 */
+	protected BigInteger getMaxWeightFound() {
+		return incumbent.get().weight;
+	}
+
+	/**
+	 * Checks whether the subtree of the given (partial) pattern can be pruned, i.e., whether the bound
+	 * chosen in Util shows that no complete pattern in it is at least as heavy as maxWeightFound.
+	 */
+	protected boolean canBePruned(int typeIndexInPermutation, BigInteger remainingSpace, BigInteger totalWeight) {
+		BigInteger maxWeightFound = incumbent.get().weight;
+		if (statistics!=null) statistics.count(this, typeIndexInPermutation, remainingSpace, totalWeight, maxWeightFound);
+		return bound.canBePruned(this, typeIndexInPermutation, remainingSpace, totalWeight, maxWeightFound);
+	}
+
+	/**
+	 * Checks whether the subtree of the given (partial) pattern can be pruned. Besides the bound chosen in
+	 * Util, this uses the check: if it refuses the type of maximum expansion that fits, no completion of
+	 * the pattern is heavier than the remaining space filled with the maximum expansion of the types that
+	 * fit and that the check does not refuse.
+	 */
+	protected boolean canBePruned(int typeIndexInPermutation, BigInteger remainingSpace, BigInteger totalWeight,
+			KnapsackPattern pattern) {
+		if (canBePruned(typeIndexInPermutation, remainingSpace, totalWeight)) return true;
+		if (pattern==null || !compiledCheck.excludesTypes(pattern.getTypes())) return false;
+		int first = firstFitting(typeIndexInPermutation, remainingSpace);
+		if (first==typePermutation.length || compiledCheck.canAdd(typePermutation[first], pattern.getTypes())) return false;
+		do {
+			first = firstFitting(first+1, remainingSpace);
+		} while (first<typePermutation.length && !compiledCheck.canAdd(typePermutation[first], pattern.getTypes()));
+		return isHeavierThanFilling(getMaxWeightFound(), totalWeight, remainingSpace, first);
+	}
+
+	/**
+	 * Returns the first position (at or after the given one) of the permutation whose type fits strictly
+	 * into the remaining space; it has the maximum expansion of all remaining types. If no type fits, the
+	 * length of the permutation is returned.
+	 */
+	@Override
+	public int firstFitting(int typeIndexInPermutation, BigInteger remainingSpace) {
+		//usually, one of the next few types fits, so we only ask the index if none of them does
+		int i = typeIndexInPermutation;
+		int end = Math.min(i+LINEAR_SEARCH_LENGTH, typePermutation.length);
+		while (i<end && remainingSpace.compareTo(scaledSize[i])<=0) ++i;
+		if (i==end && i<typePermutation.length)
+			i = expansionIndex.firstFitting(i, remainingSpace);
+		return i;
+	}
+
+	/**
+	 * Checks whether maxWeightFound > totalWeight + remainingSpace * expansion, where expansion is the
+	 * expansion of the type at the given position of the permutation, or the sand expansion if the
+	 * position is the length of the permutation.
+	 */
+	@Override
+	public boolean isHeavierThanFilling(BigInteger maxWeightFound, BigInteger totalWeight, BigInteger remainingSpace,
+			int typeIndexInPermutation) {
+		if (typeIndexInPermutation==typePermutation.length) {
+			return maxWeightFound.compareTo(totalWeight.add(remainingSpace.multiply(scaledSandExpansion)))>0;
+		} else {
+			//the expansion is scaledWeight[i]/scaledSize[i], so we compare after multiplying with scaledSize[i]
+			return maxWeightFound.subtract(totalWeight).multiply(scaledSize[typeIndexInPermutation])
+					.compareTo(remainingSpace.multiply(scaledWeight[typeIndexInPermutation]))>0;
+		}
+	}
+
+	/**
+	 * Computes how many items of the type at the given position of the permutation can be added to the
+	 * current pattern (the items must fit strictly and the check must allow them).
+	 */
+	protected int howManyItemsFit(int typeIndexInPermutation, BigInteger remainingSpace, KnapsackPattern pattern) {
+		if (pattern!=null && !compiledCheck.canAdd(typePermutation[typeIndexInPermutation], pattern.getTypes())) return 0;
+		return howManyItemsFit(typeIndexInPermutation, remainingSpace);
+	}
+
+	/**
+	 * Computes how many items of the type at the given position of the permutation fit strictly into
+	 * the given space.
+	 */
+	@Override
+	public int howManyItemsFit(int typeIndexInPermutation, BigInteger remainingSpace) {
+		return remainingSpace.subtract(BigInteger.ONE).divide(scaledSize[typeIndexInPermutation]).intValue();
+	}
+
+	/**
+	 * Stores the given complete pattern if it is heavier than the heaviest pattern found so far. If both
+	 * are equally heavy, the pattern that comes later in the search order is kept, as KnapsackSolver does.
+	 * This way, the result does not depend on the order in which the subtrees are searched.
+	 */
+	protected void patternFound(BigInteger totalWeight, int[] cardinality) {
+		if (enumeration!=null) {
+			enumeration.patternFound(totalWeight, cardinality);
+			return;
+		}
+		Incumbent newIncumbent = new Incumbent(totalWeight, cardinality.clone());
+		while (true) {
+			Incumbent current = incumbent.get();
+			int c = totalWeight.compareTo(current.weight);
+			if (c<0 || (c==0 && current.cardinality!=null && !isLaterInSearchOrder(cardinality, current.cardinality)))
+				return;
+			if (incumbent.compareAndSet(current, newIncumbent)) {
+				if (stopAtFirstPattern) searchStopped.set(true);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Creates the bound with the given name:
+	 * - "dantzig": the remaining space is filled with the maximum expansion of the types that fit
+	 * - "fractional": the LP relaxation in which every type is packed at most as often as it fits
+	 * - "mt": the bound U3 of Martello and Toth (this is the default)
+	 */
+	protected static KnapsackBound createBound(String name) {
+		switch (name) {
+		case "dantzig":
+			return new DantzigBound();
+		case "fractional":
+			return new FractionalBound();
+		case "mt":
+			return new MartelloTothBound();
+		default:
+			throw new IllegalArgumentException("Unknown knapsack bound " + name);
+		}
+	}
+
+	@Override
+	public String getStatistics() {
+		return statistics==null ? null : super.getStatistics() + "; " + statistics.toString();
+	}
+
+	/**
+	 * This class counts the nodes of the search tree and, for each of the bounds, at how many of these
+	 * nodes it would prune the subtree. Only the bound chosen in Util is actually used for pruning.
+	 */
+	protected static class SearchStatistics {
+		private static final String[] BOUND_NAMES = {"dantzig", "fractional", "mt"};
+		private final KnapsackBound[] bounds = new KnapsackBound[BOUND_NAMES.length];
+		private final LongAdder nodes = new LongAdder();
+		private final LongAdder[] pruned = new LongAdder[BOUND_NAMES.length];
+
+		SearchStatistics() {
+			for (int i = 0; i<BOUND_NAMES.length; ++i) {
+				bounds[i] = createBound(BOUND_NAMES[i]);
+				pruned[i] = new LongAdder();
+			}
+		}
+
+		void count(IntegerKnapsackSolver solver, int typeIndexInPermutation, BigInteger remainingSpace,
+				BigInteger totalWeight, BigInteger maxWeightFound) {
+			nodes.increment();
+			for (int i = 0; i<bounds.length; ++i)
+				if (bounds[i].canBePruned(solver, typeIndexInPermutation, remainingSpace, totalWeight, maxWeightFound))
+					pruned[i].increment();
+		}
+
+		@Override
+		public String toString() {
+			String s = "Knapsack search (bound " + Util.knapsackBound + "): " + nodes.sum() + " nodes; pruned by";
+			for (int i = 0; i<BOUND_NAMES.length; ++i)
+				s += (i>0 ? "," : "") + " " + BOUND_NAMES[i] + ": " + pruned[i].sum();
+			return s;
+		}
+	}
+
+	/**
+	 * This class collects the patterns found by enumeratePatterns. All patterns are passed on right away, or
+	 * the heaviest ones are kept in a min-heap, in which the lightest pattern (and of equally heavy patterns,
+	 * the one that comes first in the search order) is at the top.
+	 */
+	private class PatternEnumeration {
+		private final int maxNumberOfPatterns;
+		private final Consumer<KnapsackPattern> consumer;
+		private final PriorityQueue<Incumbent> heaviestPatterns;
+
+		PatternEnumeration(int maxNumberOfPatterns, Consumer<KnapsackPattern> consumer) {
+			this.maxNumberOfPatterns = maxNumberOfPatterns;
+			this.consumer = consumer;
+			heaviestPatterns = maxNumberOfPatterns==Integer.MAX_VALUE ? null : new PriorityQueue<>(new Comparator<Incumbent>() {
+
+				@Override
+				public int compare(Incumbent arg0, Incumbent arg1) {
+					int c = arg0.weight.compareTo(arg1.weight);
+					if (c!=0) return c;
+					return isLaterInSearchOrder(arg0.cardinality, arg1.cardinality) ? 1 : -1;
+				}
+			});
+		}
+
+		void patternFound(BigInteger totalWeight, int[] cardinality) {
+			if (heaviestPatterns==null) {
+				consumer.accept(createPattern(cardinality));
+				return;
+			}
+			heaviestPatterns.add(new Incumbent(totalWeight, cardinality.clone()));
+			if (heaviestPatterns.size()>maxNumberOfPatterns) heaviestPatterns.poll();
+			if (heaviestPatterns.size()==maxNumberOfPatterns)
+				incumbent.set(new Incumbent(heaviestPatterns.peek().weight, null));
+		}
+
+		/**
+		 * Passes the heaviest patterns to the consumer, the heaviest one first.
+		 */
+		void finish() {
+			if (heaviestPatterns==null) return;
+			List<Incumbent> patterns = new ArrayList<>(heaviestPatterns);
+			Collections.sort(patterns, Collections.reverseOrder(heaviestPatterns.comparator()));
+			for (Incumbent pattern : patterns) consumer.accept(createPattern(pattern.cardinality));
+		}
+	}
+
+	/**
+	 * The budget of one search: the number of nodes visited by all threads and the deadline. Once the
+	 * budget is exhausted, the searches that stop collect the maximum bound (in units of 1/Q) of the
+	 * subtrees they did not finish. The budget is shared by the solvers of sub-problems.
+	 */
+	protected static class SearchBudget {
+		private final long maxNodes;
+		private final long deadline; //in terms of System.nanoTime; only used if maxMillis>0
+		private final boolean hasDeadline;
+		private final AtomicLong nodes = new AtomicLong();
+		private final AtomicBoolean exhausted = new AtomicBoolean();
+		private BigFraction openBound;
+
+		SearchBudget(long maxNodes, long maxMillis) {
+			this.maxNodes = maxNodes;
+			this.hasDeadline = maxMillis>0;
+			this.deadline = System.nanoTime() + maxMillis*1000000;
+		}
+
+		/**
+		 * Counts one node and returns whether the budget is exhausted. The time is only checked every 1024
+		 * nodes.
+		 */
+		boolean countNode() {
+			long n = nodes.incrementAndGet();
+			if (maxNodes>0 && n>maxNodes) exhausted.set(true);
+			if (hasDeadline && (n&1023)==0 && System.nanoTime()-deadline>0) exhausted.set(true);
+			return exhausted.get();
+		}
+
+		boolean isExhausted() {
+			return exhausted.get();
+		}
+
+		synchronized void addOpenBound(BigFraction bound) {
+			if (openBound==null || bound.compareTo(openBound)>0) openBound = bound;
+		}
+
+		synchronized BigFraction getOpenBound() {
+			return openBound;
+		}
+	}
+
+	/**
+	 * The heaviest pattern found so far together with its weight (in units of 1/Q).
+	 */
+	private static class Incumbent {
+		final BigInteger weight;
+		final int[] cardinality; //indexed w.r.t. the permutation; null if no pattern was found yet
+
+		Incumbent(BigInteger weight, int[] cardinality) {
+			this.weight = weight;
+			this.cardinality = cardinality;
+		}
+	}
+
+	@Override
+	public int getNumberOfTypes() {
+		return typePermutation.length;
+	}
+
+	@Override
+	public BigInteger getScaledSize(int typeIndexInPermutation) {
+		return scaledSize[typeIndexInPermutation];
+	}
+
+	@Override
+	public BigInteger getScaledWeight(int typeIndexInPermutation) {
+		return scaledWeight[typeIndexInPermutation];
+	}
+}
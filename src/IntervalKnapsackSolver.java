@@ -0,0 +1,207 @@
+import java.io.IOException;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ *
+ * This knapsack solver uses interval arithmetic for the search. Every size, weight and expansion is stored
+ * as an interval [lo, hi] of doubles that is guaranteed to contain the exact value, and all operations
+ * round outwards. A decision (pruning a subtree, accepting a pattern, checking whether an item fits) is
+ * taken based on the intervals if they do not overlap; only if they overlap, the exact values are
+ * computed with BigFractions. Thus, the result is exactly the same as the one of KnapsackSolver.
+ *
+ */
+public class IntervalKnapsackSolver extends KnapsackSolver {
+
+	public IntervalKnapsackSolver(BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check,
+			BigFraction sandExpansion) {
+		super(sizes, weights, check, sandExpansion);
+	}
+
+	//intervals for sizes, weights and expansions of all types, indexed w.r.t. the permutation
+	private double[] sizeLo, sizeHi;
+	private double[] weightLo, weightHi;
+	private double[] expansionLo, expansionHi;
+	private double sandExpansionLo, sandExpansionHi;
+	private BigFraction[] expansion; //exact expansions, indexed w.r.t. the permutation
+
+	private BigFraction maxWeightFound;
+	private double maxWeightFoundLo, maxWeightFoundHi;
+	private int[] cardinality; //the current pattern, indexed w.r.t. the permutation
+	private int[] heaviestCardinality;
+	private KnapsackPattern pattern; //only maintained if the check needs to see the pattern
+
+	@Override
+	public KnapsackPattern solve(BigFraction patternWeightThreshold) throws IOException {
+		//create the permutation that sorts types in descending order of expansion
+		typePermutation = createPermutation();
+
+		int n = typePermutation.length;
+		sizeLo = new double[n]; sizeHi = new double[n];
+		weightLo = new double[n]; weightHi = new double[n];
+		expansionLo = new double[n]; expansionHi = new double[n];
+		expansion = new BigFraction[n];
+		for (int i = 0; i<n; ++i) {
+			BigFraction s = size[typePermutation[i]];
+			BigFraction w = weight[typePermutation[i]];
+			expansion[i] = w.divide(s);
+			sizeLo[i] = lowerBound(s); sizeHi[i] = upperBound(s);
+			weightLo[i] = lowerBound(w); weightHi[i] = upperBound(w);
+			expansionLo[i] = lowerBound(expansion[i]); expansionHi[i] = upperBound(expansion[i]);
+		}
+		sandExpansionLo = lowerBound(sandExpansion);
+		sandExpansionHi = upperBound(sandExpansion);
+
+		setMaxWeightFound(patternWeightThreshold);
+		cardinality = new int[n];
+		heaviestCardinality = null;
+		pattern = check instanceof AllPatterns ? null : new KnapsackPattern(getItemTypes());
+
+		//start the recursive search for the heaviest pattern
+		packRecursively(0, 1, 1, 0, 0);
+
+		return heaviestCardinality==null ? null : createPattern(heaviestCardinality);
+	}
+
+	/**
+	 * The recursive method that finds the heaviest pattern; it works exactly like the one in KnapsackSolver.
+	 * @param typeIndexInPermutation the type-index (w.r.t. the permutation) of the next item to add to the pattern
+	 * @param spaceLo, spaceHi the interval containing the remaining space of the current pattern
+	 * @param totalWeightLo, totalWeightHi the interval containing the weight of the current pattern without sand
+	 */
+	private void packRecursively(int typeIndexInPermutation, double spaceLo, double spaceHi, double totalWeightLo, double totalWeightHi) {
+		stopIfInterrupted();
+		//the remaining space is always positive
+		if (spaceLo<0) spaceLo = 0;
+
+		//find the first type that still fits; it has the maximum expansion of all remaining types
+		int i = typeIndexInPermutation;
+		while (i<typePermutation.length && !fits(i, typeIndexInPermutation, spaceLo, spaceHi)) ++i;
+
+		//compute the interval containing the upper bound
+		double eLo = i==typePermutation.length ? sandExpansionLo : expansionLo[i];
+		double eHi = i==typePermutation.length ? sandExpansionHi : expansionHi[i];
+		double upperBoundLo = Math.nextDown(totalWeightLo + Math.nextDown(spaceLo * eLo));
+		double upperBoundHi = Math.nextUp(totalWeightHi + Math.nextUp(spaceHi * eHi));
+
+		//if this upper bound does not beat the best pattern found so far, skip this branch;
+		//the exact bound is only needed if the intervals overlap
+		BigFraction exactUpperBound = null;
+		if (upperBoundHi<maxWeightFoundLo) {
+			return;
+		} else if (upperBoundLo<=maxWeightFoundHi) {
+			exactUpperBound = exactTotalWeight(typeIndexInPermutation)
+					.add(exactRemainingSpace(typeIndexInPermutation).multiply(i==typePermutation.length ? sandExpansion : expansion[i]));
+			if (maxWeightFound.compareTo(exactUpperBound)>0) return;
+		}
+
+		if (typeIndexInPermutation==typePermutation.length) { //we have added all item sizes - we are done
+			if (exactUpperBound==null)
+				exactUpperBound = exactTotalWeight(typeIndexInPermutation).add(exactRemainingSpace(typeIndexInPermutation).multiply(sandExpansion));
+			setMaxWeightFound(exactUpperBound); //store the pattern and its weight
+			heaviestCardinality = cardinality.clone();
+		} else { //add items of type typeIndexInPermutation to this pattern
+			int typeToAdd = typePermutation[typeIndexInPermutation];
+
+			//find out how many items of the current type we can add
+			int numberOfItemsToAdd = howManyItemsFit(typeIndexInPermutation, spaceLo, spaceHi);
+
+			//check, if we really can add this item (or if it would lead to a forbidden pattern)
+			if (pattern!=null && !compiledCheck.canAdd(typeToAdd, pattern.getTypes())) numberOfItemsToAdd = 0;
+
+			if (pattern!=null) pattern.addItems(typeToAdd, numberOfItemsToAdd);
+			while (numberOfItemsToAdd>=0) {
+				//the intervals are computed from the ones of the parent node, so that they do not grow
+				//with the number of items tried
+				cardinality[typeIndexInPermutation] = numberOfItemsToAdd;
+				packRecursively(typeIndexInPermutation+1,
+						Math.nextDown(spaceLo - Math.nextUp(numberOfItemsToAdd * sizeHi[typeIndexInPermutation])),
+						Math.nextUp(spaceHi - Math.nextDown(numberOfItemsToAdd * sizeLo[typeIndexInPermutation])),
+						Math.nextDown(totalWeightLo + Math.nextDown(numberOfItemsToAdd * weightLo[typeIndexInPermutation])),
+						Math.nextUp(totalWeightHi + Math.nextUp(numberOfItemsToAdd * weightHi[typeIndexInPermutation])));
+
+				numberOfItemsToAdd--;
+				if (numberOfItemsToAdd>=0 && pattern!=null) {
+					pattern.removeItem(typeToAdd);
+				}
+			}
+			cardinality[typeIndexInPermutation] = 0;
+			if (pattern!=null) pattern.removeAllItems(typeToAdd);
+		}
+	}
+
+	/**
+	 * Checks whether an item of the type at the given position of the permutation fits strictly into the
+	 * current pattern (which contains items of the types before position level).
+	 */
+	private boolean fits(int typeIndexInPermutation, int level, double spaceLo, double spaceHi) {
+		if (sizeHi[typeIndexInPermutation]<spaceLo) return true;
+		if (sizeLo[typeIndexInPermutation]>=spaceHi) return false;
+		return size[typePermutation[typeIndexInPermutation]].compareTo(exactRemainingSpace(level))<0;
+	}
+
+	/**
+	 * Computes how many items of the type at the given position of the permutation fit strictly into
+	 * the current pattern (which contains items of the types before this position).
+	 */
+	private int howManyItemsFit(int typeIndexInPermutation, double spaceLo, double spaceHi) {
+		int n = (int) Math.floor(spaceLo / sizeHi[typeIndexInPermutation]);
+		if (n>=0 && Math.nextUp(n * sizeHi[typeIndexInPermutation])<spaceLo
+				&& Math.nextDown((n+1) * sizeLo[typeIndexInPermutation])>=spaceHi)
+			return n;
+
+		//the intervals are not precise enough, so compute it exactly (like KnapsackPattern.howManyItemsFit)
+		BigFraction bf = exactRemainingSpace(typeIndexInPermutation).divide(size[typePermutation[typeIndexInPermutation]]);
+		int intPart = bf.intValue();
+		int res = bf.equals(new BigFraction(intPart)) ? intPart-1 : intPart;
+		return res<0 ? 0 : res;
+	}
+
+	/**
+	 * Computes the exact remaining space of the current pattern, which contains items of the types
+	 * before position level of the permutation.
+	 */
+	private BigFraction exactRemainingSpace(int level) {
+		BigFraction remainingSpace = BigFraction.ONE;
+		for (int j = 0; j<level; ++j)
+			if (cardinality[j]>0)
+				remainingSpace = remainingSpace.subtract(size[typePermutation[j]].multiply(cardinality[j]));
+		return remainingSpace;
+	}
+
+	/**
+	 * Computes the exact weight (without sand) of the current pattern, which contains items of the types
+	 * before position level of the permutation.
+	 */
+	private BigFraction exactTotalWeight(int level) {
+		BigFraction totalWeight = BigFraction.ZERO;
+		for (int j = 0; j<level; ++j)
+			if (cardinality[j]>0)
+				totalWeight = totalWeight.add(weight[typePermutation[j]].multiply(cardinality[j]));
+		return totalWeight;
+	}
+
+	private void setMaxWeightFound(BigFraction w) {
+		maxWeightFound = w;
+		maxWeightFoundLo = lowerBound(w);
+		maxWeightFoundHi = upperBound(w);
+	}
+
+	/**
+	 * Returns a double that is at most the given fraction.
+	 */
+	private static double lowerBound(BigFraction f) {
+		double d = f.doubleValue();
+		while (new BigFraction(d).compareTo(f)>0) d = Math.nextDown(d);
+		return d;
+	}
+
+	/**
+	 * Returns a double that is at least the given fraction.
+	 */
+	private static double upperBound(BigFraction f) {
+		double d = f.doubleValue();
+		while (new BigFraction(d).compareTo(f)<0) d = Math.nextUp(d);
+		return d;
+	}
+}
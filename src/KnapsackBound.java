@@ -0,0 +1,20 @@
+import java.math.BigInteger;
+
+
+/**
+ * A bound that IntegerKnapsackSolver uses to prune its search tree. All values are given in the units
+ * of the solver, i.e., sizes in units of 1/C and weights in units of 1/Q.
+ *
+ */
+public interface KnapsackBound {
+
+	/**
+	 * Checks whether every complete pattern in the subtree of the given partial pattern is strictly
+	 * lighter than maxWeightFound.
+	 * @param typeIndexInPermutation the position (w.r.t. the permutation) of the next type to add
+	 * @param remainingSpace the space left in the partial pattern
+	 * @param totalWeight the weight of the partial pattern without sand
+	 */
+	public boolean canBePruned(IntegerKnapsackSolver solver, int typeIndexInPermutation, BigInteger remainingSpace,
+			BigInteger totalWeight, BigInteger maxWeightFound);
+}
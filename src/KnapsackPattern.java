@@ -1,59 +1,77 @@
-import java.util.LinkedList;
-import java.util.List;
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.math3.fraction.BigFraction;
 
 /**
  * This class represents one pattern considered in the knapsack solver.
+ * The items are identified by the index of their type in the arrays of sizes and weights given to the
+ * solver; the pattern stores how many items of each type it contains.
  *
  */
 public class KnapsackPattern {
 
-	protected final List<Entry> items; //the items of this pattern
-	protected BigFraction totalSize; //the total size of these items
-	protected BigFraction totalWeight; //the total weight of these items; this does not include the weight of sand!
-	
+	protected final ItemTypes types; //the types the items of this pattern can have
+	protected final int[] cardinality; //how often each type is present in the pattern, indexed by type
+	protected final int[] sizeClassCardinality; //how many items of each size are present in the pattern
+	protected final int[] typeOrder; //the types present in this pattern, in the order in which they were added
+	protected final BitSet typeSet; //the types present in this pattern, for CompiledFeasibilityCheck
+	protected int numberOfTypes; //the number of different types present in this pattern
+	protected BigInteger totalSize; //the total size of the items, in units of 1/types.sizeDenominator
+	protected BigInteger totalWeight; //the total weight of the items, in units of 1/types.weightDenominator; this does not include the weight of sand!
+
 	/**
-	 * 
-	 * This class represents one item type packed in this pattern.
+	 *
+	 * This class contains the sizes and weights of all item types a pattern can contain. Additionally,
+	 * all sizes are given as integers w.r.t. a common denominator, and the same is done for the weights.
+	 * This way, the total size and weight of a pattern can be updated without computing any gcd.
+	 * One object of this class is shared by all patterns of one knapsack problem.
 	 *
 	 */
-	class Entry {
-		final BigFraction size; //size of the item
-		final BigFraction weight; //weight of the item
-		int cardinality; //cardinality, how often this item is present in the pattern
-		
-		public Entry(BigFraction size, BigFraction weight, int card) {
+	static class ItemTypes {
+		final BigFraction[] size;
+		final BigFraction[] weight;
+		final BigInteger sizeDenominator;
+		final BigInteger[] sizeNumerator;
+		final BigInteger weightDenominator;
+		final BigInteger[] weightNumerator;
+		final int[] sizeClass; //types of equal size have the same size class
+		final Map<BigFraction, Integer> sizeClassOfSize;
+
+		public ItemTypes(BigFraction[] size, BigFraction[] weight) {
 			this.size = size;
 			this.weight = weight;
-			this.cardinality = card;
-			if (card<1) throw new IllegalArgumentException("Cannot add zero item to pattern!");
-		}
-		
-		/**
-		 * Add n items of this type to the entry.
-		 */
-		public void add(int n) {cardinality = cardinality + n;}
-		
-		/**
-		 * Remove one item of this type from the entry. This may not reduce the cardinality to zero.
-		 */
-		public void removeOne() {
-			cardinality--;
-			if (cardinality<1) throw new IllegalArgumentException("Cannot add zero item to pattern!");
-		}
-		
-		/**
-		 * Create a copy of this entry.
-		 */
-		public Entry clone() {
-			return new Entry(size, weight, cardinality);
+
+			BigInteger sd = BigInteger.ONE;
+			BigInteger wd = BigInteger.ONE;
+			for (int i = 0; i<size.length; ++i) {
+				sd = Scaling.lcm(sd, size[i].getDenominator());
+				wd = Scaling.lcm(wd, weight[i].getDenominator());
+			}
+			sizeDenominator = sd;
+			weightDenominator = wd;
+			sizeNumerator = new BigInteger[size.length];
+			weightNumerator = new BigInteger[size.length];
+			sizeClass = new int[size.length];
+			sizeClassOfSize = new HashMap<>();
+			for (int i = 0; i<size.length; ++i) {
+				sizeNumerator[i] = Scaling.scale(size[i], sd);
+				weightNumerator[i] = Scaling.scale(weight[i], wd);
+				Integer c = sizeClassOfSize.get(size[i]);
+				if (c==null) {
+					c = sizeClassOfSize.size();
+					sizeClassOfSize.put(size[i], c);
+				}
+				sizeClass[i] = c;
+			}
 		}
 	}
-	
-	
-	
-	
+
+
+
+
 	// ------------------------------------------
 	// ------------------------------------------
 	// ------------------------------------------
@@ -62,100 +80,118 @@ public class KnapsackPattern {
 	// ------------------------------------------
 	// ------------------------------------------
 
-	public KnapsackPattern() {
-		items = new LinkedList<>();
-		totalWeight = BigFraction.ZERO;
-		totalSize = BigFraction.ZERO;
+	public KnapsackPattern(ItemTypes types) {
+		this.types = types;
+		cardinality = new int[types.size.length];
+		sizeClassCardinality = new int[types.sizeClassOfSize.size()];
+		typeOrder = new int[types.size.length];
+		typeSet = new BitSet(types.size.length);
+		numberOfTypes = 0;
+		totalWeight = BigInteger.ZERO;
+		totalSize = BigInteger.ZERO;
 	}
 
 	/**
-	 * This method adds items of the given size, weight and cardinality to this pattern.
+	 * Creates an empty pattern for items of the given sizes and weights.
 	 */
-	public void addItems(BigFraction size, BigFraction w, int number) {
+	public KnapsackPattern(BigFraction[] sizes, BigFraction[] weights) {
+		this(new ItemTypes(sizes, weights));
+	}
+
+	private KnapsackPattern(KnapsackPattern p) {
+		types = p.types;
+		cardinality = p.cardinality.clone();
+		sizeClassCardinality = p.sizeClassCardinality.clone();
+		typeOrder = p.typeOrder.clone();
+		typeSet = (BitSet) p.typeSet.clone();
+		numberOfTypes = p.numberOfTypes;
+		totalSize = p.totalSize;
+		totalWeight = p.totalWeight;
+	}
+
+	/**
+	 * This method adds the given number of items of the given type to this pattern.
+	 */
+	public void addItems(int type, int number) {
 		if (number==0) return;
-		boolean existing = false;
-		for (Entry e : items) {
-			if (e.size.equals(size)) {
-				existing = true;
-				e.add(number);
-			}
-		}
-		if (!existing) {
-			//this type is not present yet, so add it
-			Entry e = new Entry(size, w, number);
-			items.add(e);
+		if (number<0) throw new IllegalArgumentException("Cannot add a negative number of items to pattern!");
+		if (cardinality[type]==0) {
+			typeOrder[numberOfTypes++] = type;
+			typeSet.set(type);
 		}
+		cardinality[type] += number;
+		sizeClassCardinality[types.sizeClass[type]] += number;
 
 		//add weight for new items and increase total size
-		totalWeight = totalWeight.add(w.multiply(number));
-		totalSize = totalSize.add(size.multiply(number));
+		BigInteger n = BigInteger.valueOf(number);
+		totalWeight = totalWeight.add(number==1 ? types.weightNumerator[type] : types.weightNumerator[type].multiply(n));
+		totalSize = totalSize.add(number==1 ? types.sizeNumerator[type] : types.sizeNumerator[type].multiply(n));
 	}
 
 	/**
 	 * This method returns a copy of this pattern with the same items.
-	 * 
 	 */
 	public KnapsackPattern copy() {
-		KnapsackPattern p = new KnapsackPattern();
-		for (Entry e : items) p.items.add(e.clone());
-		p.totalSize = totalSize;
-		p.totalWeight = totalWeight;
-		return p;
+		return new KnapsackPattern(this);
 	}
 
 	/**
-	 * Checks how many items of the given size could be added to this pattern space-wise.
+	 * Checks how many items of the given type could be added to this pattern space-wise.
+	 * As the sizes are lower bounds, the items have to fit strictly.
 	 */
-	public int howManyItemsFit(BigFraction size) {
-		BigFraction bf = BigFraction.ONE.subtract(totalSize).divide(size);
-		int intPart = bf.intValue();
-		int res = bf.equals(new BigFraction(intPart)) ? intPart-1 : intPart;
-		if (res<0) res = 0;
-		return res;
+	public int howManyItemsFit(int type) {
+		BigInteger remainingSpace = types.sizeDenominator.subtract(totalSize);
+		if (remainingSpace.signum()<=0) return 0;
+		return remainingSpace.subtract(BigInteger.ONE).divide(types.sizeNumerator[type]).intValue();
 	}
 
 	/**
-	 * Removes one item of the given size from this pattern.
+	 * Checks whether an item of the given type fits (strictly) into this pattern.
 	 */
-	public void removeItem(BigFraction size) {
-		Entry found = null;
-		for (Entry e : items) {
-			if (e.size.equals(size)) {
-				found = e;
-				break;
-			}
-		}
-		if (found==null) //no items of this type
-			return;
+	public boolean fits(int type) {
+		return types.sizeDenominator.subtract(totalSize).compareTo(types.sizeNumerator[type])>0;
+	}
 
-		if (found.cardinality==1) {
-			items.remove(found);
-		} else {
-			found.removeOne();
-		}
+	/**
+	 * Removes one item of the given type from this pattern.
+	 */
+	public void removeItem(int type) {
+		if (cardinality[type]==0) //no items of this type
+			return;
+		cardinality[type]--;
+		sizeClassCardinality[types.sizeClass[type]]--;
+		if (cardinality[type]==0) removeFromTypeOrder(type);
 
-		totalSize = totalSize.subtract(size.multiply(1));
-		totalWeight = totalWeight.subtract(found.weight.multiply(1));
+		totalSize = totalSize.subtract(types.sizeNumerator[type]);
+		totalWeight = totalWeight.subtract(types.weightNumerator[type]);
 	}
 
 	/**
-	 * Removes all items of the given size from this pattern.
+	 * Removes all items of the given type from this pattern.
 	 */
-	public void removeAllItems(BigFraction size) {
-		Entry e = null;
-		for (Entry f : items) {
-			if (f.size.equals(size)) {
-				e = f;
-				break;
-			}
-		}
-		if (e==null) //no items of this type
+	public void removeAllItems(int type) {
+		int number = cardinality[type];
+		if (number==0) //no items of this type
 			return;
+		cardinality[type] = 0;
+		sizeClassCardinality[types.sizeClass[type]] -= number;
+		removeFromTypeOrder(type);
 
-		items.remove(e);
+		BigInteger n = BigInteger.valueOf(number);
+		totalSize = totalSize.subtract(types.sizeNumerator[type].multiply(n));
+		totalWeight = totalWeight.subtract(types.weightNumerator[type].multiply(n));
+	}
 
-		totalSize = totalSize.subtract(size.multiply(e.cardinality));
-		totalWeight = totalWeight.subtract(e.weight.multiply(e.cardinality));
+	/**
+	 * Removes the given type from the list of types present in this pattern. In the knapsack solver, this
+	 * is always the type added last, so this takes constant time.
+	 */
+	private void removeFromTypeOrder(int type) {
+		int i = numberOfTypes-1;
+		while (typeOrder[i]!=type) --i;
+		System.arraycopy(typeOrder, i+1, typeOrder, i, numberOfTypes-1-i);
+		numberOfTypes--;
+		typeSet.clear(type);
 	}
 
 
@@ -166,23 +202,67 @@ public class KnapsackPattern {
 	// ------------------------------------------
 	// ------------------------------------------
 	// ------------------------------------------
-	
-	
+
+
 	public BigFraction getRemainingSpace() {
-		return BigFraction.ONE.subtract(totalSize);
+		return new BigFraction(types.sizeDenominator.subtract(totalSize), types.sizeDenominator);
+	}
+
+	/**
+	 * Returns the remaining space in units of 1/d, where d is the common denominator of all sizes.
+	 */
+	public BigInteger getScaledRemainingSpace() {
+		return types.sizeDenominator.subtract(totalSize);
 	}
 
 	public BigFraction getTotalWeightWithoutSand() {
-		return totalWeight;
+		return new BigFraction(totalWeight, types.weightDenominator);
+	}
+
+	public boolean containsType(int type) {
+		return cardinality[type]>0;
 	}
 
 	public boolean containsSize(BigFraction size) {
-		for (Entry e : items) if (e.size.equals(size)) return true;
-		return false;
+		Integer c = types.sizeClassOfSize.get(size);
+		return c!=null && sizeClassCardinality[c]>0;
+	}
+
+	public int getCardinality(int type) {
+		return cardinality[type];
+	}
+
+	/**
+	 * Returns the set of types present in this pattern. The set must not be modified.
+	 */
+	public BitSet getTypes() {
+		return typeSet;
+	}
+
+	/**
+	 * Returns the number of different types present in this pattern.
+	 */
+	public int getNumberOfTypes() {
+		return numberOfTypes;
+	}
+
+	/**
+	 * Returns the i-th type present in this pattern (in the order in which the types were added).
+	 */
+	public int getType(int i) {
+		return typeOrder[i];
+	}
+
+	public BigFraction getSize(int type) {
+		return types.size[type];
+	}
+
+	public BigFraction getWeight(int type) {
+		return types.weight[type];
 	}
 
 	public BigFraction getTotalWeightInclSand(BigFraction sandExpansion) {
-		return totalWeight.add(BigFraction.ONE.subtract(totalSize).multiply(sandExpansion));
+		return getTotalWeightWithoutSand().add(getRemainingSpace().multiply(sandExpansion));
 	}
 
 	/**
@@ -192,20 +272,21 @@ public class KnapsackPattern {
 	 */
 	public BigFraction getTotalWeightWInclSand(TypeInfo[] types, int k, BigFraction sandExpansion) {
 		BigFraction total = BigFraction.ZERO;
-		
-		for (Entry e : items) {
+
+		for (int j = 0; j<numberOfTypes; ++j) {
+			BigFraction size = getSize(typeOrder[j]);
 			int index = -1;
 			for (int i = 0; i<types.length; ++i) {
-				if (types[i].getSizeLB().equals(e.size)) {
+				if (types[i].getSizeLB().equals(size)) {
 					index = i;
 					break;
 				}
 			}
 			if (index<0) total = total.add(BigFraction.ONE); //then it is a large item, those have w-weight 1
-			else total = total.add(types[index].getWeightW(k).multiply(e.cardinality));
+			else total = total.add(types[index].getWeightW(k).multiply(cardinality[typeOrder[j]]));
 		}
-		total = total.add(BigFraction.ONE.subtract(totalSize).multiply(sandExpansion));
-		
+		total = total.add(getRemainingSpace().multiply(sandExpansion));
+
 		return total;
 	}
 
@@ -216,26 +297,27 @@ public class KnapsackPattern {
 	 */
 	public BigFraction getTotalWeightVInclSand(TypeInfo[] types, int classOfR, BigFraction sandExpansion) {
 		BigFraction total = BigFraction.ZERO;
-		
-		for (Entry e : items) {
+
+		for (int j = 0; j<numberOfTypes; ++j) {
+			BigFraction size = getSize(typeOrder[j]);
 			int index = -1;
 			for (int i = 0; i<types.length; ++i) {
-				if (types[i].getSizeLB().equals(e.size)) {
+				if (types[i].getSizeLB().equals(size)) {
 					index = i;
 					break;
 				}
 			}
 			if (index<0) {//it is a large item
-				if (!e.size.equals(BigFraction.ONE_HALF)) //then it has weight 1; otherwise it has weight 0
+				if (!size.equals(BigFraction.ONE_HALF)) //then it has weight 1; otherwise it has weight 0
 					total = total.add(BigFraction.ONE);
-			} else 
-				total = total.add(types[index].getWeightV(classOfR).multiply(e.cardinality));
+			} else
+				total = total.add(types[index].getWeightV(classOfR).multiply(cardinality[typeOrder[j]]));
 		}
-		total = total.add(BigFraction.ONE.subtract(totalSize).multiply(sandExpansion));
-		
+		total = total.add(getRemainingSpace().multiply(sandExpansion));
+
 		return total;
 	}
-	
+
 
 
 	// ------------------------------------------
@@ -248,10 +330,10 @@ public class KnapsackPattern {
 
 	public String weightString() {
 		String s = "";
-		for (int i = 0; i<items.size(); ++i) {
-			Entry e = items.get(i);
-			s += String.format("%.5f ["+e.cardinality+" times]",e.weight.doubleValue());
-			if (i<items.size()-1) s+= " , ";
+		for (int i = 0; i<numberOfTypes; ++i) {
+			int type = typeOrder[i];
+			s += String.format("%.5f ["+cardinality[type]+" times]",getWeight(type).doubleValue());
+			if (i<numberOfTypes-1) s+= " , ";
 		}
 		return s;
 	}
@@ -259,10 +341,10 @@ public class KnapsackPattern {
 	@Override
 	public String toString() {
 		String s = "";
-		for (int i = 0; i<items.size(); ++i) {
-			Entry e = items.get(i);
-			s += e.size + " ["+e.cardinality+" times]";
-			if (i<items.size()-1) s += " , ";
+		for (int i = 0; i<numberOfTypes; ++i) {
+			int type = typeOrder[i];
+			s += getSize(type) + " ["+cardinality[type]+" times]";
+			if (i<numberOfTypes-1) s += " , ";
 		}
 		return s;
 	}
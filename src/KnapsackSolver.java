@@ -1,8 +1,14 @@
 import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 
 import org.apache.commons.math3.fraction.BigFraction;
 
@@ -15,10 +21,12 @@ import org.apache.commons.math3.fraction.BigFraction;
  */
 public class KnapsackSolver {
 
-	private final BigFraction[] size;
-	private final BigFraction[] weight;
-	private final PatternFeasibilityCheck check;
-	private final BigFraction sandExpansion;
+	protected final BigFraction[] size;
+	protected final BigFraction[] weight;
+	protected final PatternFeasibilityCheck check;
+	protected final CompiledFeasibilityCheck compiledCheck; //the check compiled for the types of this problem
+	protected final BigFraction sandExpansion;
+	private KnapsackPattern.ItemTypes itemTypes; //shared by all patterns of this knapsack problem; created when needed
 
 	public KnapsackSolver(BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check,
 			BigFraction sandExpansion) {
@@ -26,13 +34,35 @@ public class KnapsackSolver {
 		this.size = sizes;
 		this.weight = weights;
 		this.check = check;
+		this.compiledCheck = check.compile(sizes);
 		this.sandExpansion = sandExpansion;
 
 	}
 
+	private final Thread creatingThread = Thread.currentThread(); //see stopIfInterrupted
+	private final List<KnapsackPattern> startPatterns = new ArrayList<>(); //see addStartPattern
+	private int numberOfConsideredTypes; //the number of types with expansion >= sandExpansion
+	private int numberOfDominatedTypes; //the number of these types removed by removeDominatedTypes
 	private BigFraction maxWeightFound;
 	private KnapsackPattern heaviestPattern;
-	private int[] typePermutation;
+	protected int[] typePermutation;
+	private BigFraction[] expansion; //expansion of the types, indexed w.r.t. the permutation
+	private ExpansionIndex<BigInteger> expansionIndex; //finds the first type in the permutation that fits
+	private TranspositionTable<BigFraction> transpositionTable; //bounds for searched sub-problems; null if not used
+
+	/**
+	 * The budget of a search (see setBudget); 0 means that there is no limit.
+	 */
+	protected long maxNodes = 0;
+	protected long maxMillis = 0;
+
+	/**
+	 * If the last search ran out of its budget, these are the weight (incl. sand) of the heaviest pattern
+	 * it found (or the threshold, if it found none) and an upper bound on the weight of all patterns;
+	 * otherwise, both are null.
+	 */
+	protected BigFraction lowerBound;
+	protected BigFraction upperBound;
 
 	/**
 	 * This method starts the computations.
@@ -41,12 +71,36 @@ public class KnapsackSolver {
 	 */
 	public KnapsackPattern solve(BigFraction patternWeightThreshold) throws IOException {
 		//initialize variables
-		KnapsackPattern p = new KnapsackPattern();
+		KnapsackPattern p = new KnapsackPattern(getItemTypes());
 		maxWeightFound = patternWeightThreshold;
 		heaviestPattern = null;
 		
 		//create the permutation that sorts types in descending order of expansion
 		typePermutation = createPermutation();
+
+		//precompute the expansions and the index over the (scaled) sizes
+		expansion = new BigFraction[typePermutation.length];
+		BigInteger[] scaledSize = new BigInteger[typePermutation.length];
+		for (int i = 0; i<typePermutation.length; ++i) {
+			expansion[i] = weight[typePermutation[i]].divide(size[typePermutation[i]]);
+			scaledSize[i] = getItemTypes().sizeNumerator[typePermutation[i]];
+		}
+		expansionIndex = new ExpansionIndex<>(scaledSize);
+
+		//the bounds of sub-problems only depend on the remaining space if the check accepts all patterns
+		transpositionTable = check instanceof AllPatterns && Util.transpositionTableSize>0
+				? new TranspositionTable<>(Util.transpositionTableSize) : null;
+
+		//if there is a start pattern that is heavy enough, it is the first incumbent
+		int[] startCardinality = heaviestStartPattern();
+		if (startCardinality!=null) {
+			KnapsackPattern start = createPattern(startCardinality);
+			BigFraction startWeight = start.getTotalWeightInclSand(sandExpansion);
+			if (startWeight.compareTo(maxWeightFound)>=0) {
+				maxWeightFound = startWeight;
+				heaviestPattern = start;
+			}
+		}
 		
 		//start the recursive search for the heaviest pattern
 		packRecursively(0, p);
@@ -54,12 +108,152 @@ public class KnapsackSolver {
 		return heaviestPattern;
 	}
 
+	/**
+	 * This method decides whether there is a pattern with a total weight strictly above the given bound.
+	 * If so, such a pattern is returned, but it need not be the heaviest one; otherwise, null is returned.
+	 * This implementation searches for the heaviest pattern; subclasses may stop at the first pattern
+	 * above the bound.
+	 */
+	public KnapsackPattern findPatternAbove(BigFraction bound) throws IOException {
+		KnapsackPattern p = solve(bound);
+		if (p==null || p.getTotalWeightInclSand(sandExpansion).compareTo(bound)<=0) return null;
+		return p;
+	}
+
+	/**
+	 * This method enumerates the patterns with a total weight strictly above the given threshold and passes
+	 * them to the consumer. If maxNumberOfPatterns is Integer.MAX_VALUE, all these patterns are passed as
+	 * soon as they are found; otherwise, only the maxNumberOfPatterns heaviest ones are passed, in
+	 * descending order of weight, after the search. This implementation can only find the heaviest pattern,
+	 * so it passes at most this one; subclasses may enumerate more patterns in one search.
+	 */
+	public void enumeratePatterns(BigFraction threshold, int maxNumberOfPatterns, Consumer<KnapsackPattern> consumer)
+			throws IOException {
+		KnapsackPattern p = findPatternAbove(threshold);
+		if (p!=null && maxNumberOfPatterns>0) consumer.accept(p);
+	}
+
+	/**
+	 * Returns the item types of this knapsack problem, which are shared by all patterns. They are only
+	 * created when a pattern is needed, as computing the common denominators takes some time.
+	 */
+	protected KnapsackPattern.ItemTypes getItemTypes() {
+		if (itemTypes==null) itemTypes = new KnapsackPattern.ItemTypes(size, weight);
+		return itemTypes;
+	}
+
+	/**
+	 * Adds a pattern with which the search is started, e.g. the heaviest pattern of a similar knapsack
+	 * problem. Before the search, all start patterns are evaluated with the sizes and weights of this
+	 * problem, and the heaviest of them is used as the heaviest pattern found so far, so that the search
+	 * can prune from the first node on. The result of the search does not depend on the start patterns.
+	 */
+	public void addStartPattern(KnapsackPattern pattern) {
+		startPatterns.add(pattern);
+	}
+
+	/**
+	 * Converts the start patterns to this knapsack problem and returns the cardinalities (indexed w.r.t.
+	 * the permutation) of the heaviest one, or null if there are no start patterns. Items whose size is
+	 * not the size of a type in the permutation are left out, and so are items that do not fit or that
+	 * the check does not allow. Hence, every converted pattern is a leaf of the search tree.
+	 */
+	protected int[] heaviestStartPattern() {
+		if (startPatterns.isEmpty()) return null;
+
+		//the first position in the permutation of each size
+		Map<BigFraction, Integer> position = new HashMap<>();
+		for (int i = typePermutation.length-1; i>=0; --i) position.put(size[typePermutation[i]], i);
+
+		int[] heaviestCardinality = null;
+		BigFraction heaviestWeight = null;
+		for (KnapsackPattern start : startPatterns) {
+			int[] cardinality = new int[typePermutation.length];
+			for (int j = 0; j<start.getNumberOfTypes(); ++j) {
+				Integer i = position.get(start.getSize(start.getType(j)));
+				if (i!=null) cardinality[i] += start.getCardinality(start.getType(j));
+			}
+
+			//add the items in the order of the search
+			KnapsackPattern p = new KnapsackPattern(getItemTypes());
+			for (int i = 0; i<cardinality.length; ++i) {
+				if (cardinality[i]==0) continue;
+				if (!compiledCheck.canAdd(typePermutation[i], p.getTypes())) cardinality[i] = 0;
+				cardinality[i] = Math.min(cardinality[i], p.howManyItemsFit(typePermutation[i]));
+				p.addItems(typePermutation[i], cardinality[i]);
+			}
+
+			BigFraction weight = p.getTotalWeightInclSand(sandExpansion);
+			int c = heaviestWeight==null ? 1 : weight.compareTo(heaviestWeight);
+			if (c>0 || (c==0 && isLaterInSearchOrder(cardinality, heaviestCardinality))) {
+				heaviestCardinality = cardinality;
+				heaviestWeight = weight;
+			}
+		}
+		return heaviestCardinality;
+	}
+
+	/**
+	 * The search tries the cardinalities of each type in decreasing order, so a complete pattern is found
+	 * later than another one iff its cardinality is smaller at the first position where they differ.
+	 */
+	protected static boolean isLaterInSearchOrder(int[] cardinality, int[] other) {
+		for (int i = 0; i<cardinality.length; ++i)
+			if (cardinality[i]!=other[i]) return cardinality[i]<other[i];
+		return false;
+	}
+
+	/**
+	 * Sets the budget of the following searches: a search stops after it has visited maxNodes nodes of the
+	 * search tree or after maxMillis milliseconds, whichever comes first (0 means that there is no limit).
+	 * The pattern returned is then the heaviest one found so far, and getUpperBound bounds the weight of the
+	 * patterns that were not searched. This implementation always searches the whole tree; only
+	 * IntegerKnapsackSolver and its subclasses respect the budget.
+	 */
+	public void setBudget(long maxNodes, long maxMillis) {
+		this.maxNodes = maxNodes;
+		this.maxMillis = maxMillis;
+	}
+
+	/**
+	 * Returns whether the last search was finished, i.e., whether its result is exact.
+	 */
+	public boolean isSearchComplete() {
+		return upperBound==null;
+	}
+
+	/**
+	 * Returns an upper bound on the weight (incl. sand) of all patterns if the last search ran out of its
+	 * budget; the bound is the maximum of the weight of the heaviest pattern found and the bounds of all
+	 * subtrees that were not searched completely. If the search was finished, null is returned.
+	 */
+	public BigFraction getUpperBound() {
+		return upperBound;
+	}
+
+	/**
+	 * Returns the difference between getUpperBound and the weight of the heaviest pattern found (or the
+	 * threshold, if no pattern was found) if the last search ran out of its budget, and null otherwise.
+	 */
+	public BigFraction getGap() {
+		return upperBound==null ? null : upperBound.subtract(lowerBound);
+	}
+
+	/**
+	 * Returns a description of the statistics of the last search, or null if this solver does not
+	 * collect statistics.
+	 */
+	public String getStatistics() {
+		if (!Util.knapsackStatistics) return null;
+		return "Presolve: " + numberOfDominatedTypes + " of " + numberOfConsideredTypes + " types removed as dominated";
+	}
+
 	/**
 	 * This method creates the permutation of types that sorts them in descending order of expansion.
 	 * Types that have expansion below the sandExpansion are not considered (i.e., they are not
 	 * included in the int[] that is returned).
 	 */
-	private int[] createPermutation() {
+	protected int[] createPermutation() {
 
 		//compute expansion of all types
 		BigFraction[] expansion = new BigFraction[size.length];
@@ -76,6 +270,9 @@ public class KnapsackSolver {
 			if (expansion[i].compareTo(sandExpansion)<0) continue;
 			pi_function.add(i);
 		}
+		numberOfConsideredTypes = pi_function.size();
+		if (Util.presolve) pi_function = removeDominatedTypes(pi_function);
+		numberOfDominatedTypes = numberOfConsideredTypes - pi_function.size();
 		//sort list
 		Collections.sort(pi_function, new Comparator<Integer>(){
 
@@ -94,12 +291,76 @@ public class KnapsackSolver {
 		return pi;
 	}
 
+	/**
+	 * Creates the pattern with the given cardinalities, which are indexed w.r.t. the permutation. The items
+	 * are added in the order of the permutation, i.e., in the same order in which packRecursively adds them.
+	 */
+	protected KnapsackPattern createPattern(int[] cardinality) {
+		KnapsackPattern p = new KnapsackPattern(getItemTypes());
+		for (int i = 0; i<cardinality.length; ++i)
+			p.addItems(typePermutation[i], cardinality[i]);
+		return p;
+	}
+
+	/**
+	 * Removes the types that are dominated by another type from the given list. Type j is dominated by
+	 * type i if s_i <= s_j and w_i >= w_j: replacing the items of type j in a pattern by items of type i
+	 * gives a pattern that is at least as heavy. If sandExpansion > 0, it is even strictly heavier unless
+	 * both types have the same size and weight, so type j cannot be part of the heaviest pattern. Of
+	 * several types with the same size and weight, we keep the one that comes last in the permutation,
+	 * which is the one the search fills last. Like this, the search finds the same pattern as without
+	 * this presolve step. Types that the check treats in a special way are neither removed nor used to
+	 * remove other types.
+	 */
+	protected List<Integer> removeDominatedTypes(List<Integer> types) {
+		//sort by increasing size; of equal sizes, the heaviest (and then the last) type comes first
+		List<Integer> sorted = new ArrayList<>();
+		for (int i : types)
+			if (!compiledCheck.isConstrained(i)) sorted.add(i);
+		Collections.sort(sorted, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer arg0, Integer arg1) {
+				int c = size[arg0].compareTo(size[arg1]);
+				if (c==0) c = weight[arg1].compareTo(weight[arg0]);
+				if (c==0) c = arg1.compareTo(arg0);
+				return c;
+			}});
+
+		//a type is dominated iff one of the types before it in this order is at least as heavy
+		boolean[] dominated = new boolean[size.length];
+		int heaviest = -1; //the heaviest type so far
+		for (int i : sorted) {
+			if (heaviest>=0) {
+				int c = weight[heaviest].compareTo(weight[i]);
+				boolean sameType = c==0 && size[heaviest].equals(size[i]);
+				dominated[i] = c>0 || (c==0 && (sameType || sandExpansion.compareTo(BigFraction.ZERO)>0));
+			}
+			if (heaviest<0 || weight[i].compareTo(weight[heaviest])>0) heaviest = i;
+		}
+
+		List<Integer> result = new LinkedList<>();
+		for (int i : types)
+			if (!dominated[i]) result.add(i);
+		return result;
+	}
+
+	/**
+	 * Stops the search by throwing a CancellationException if the thread that created this solver was
+	 * interrupted, e.g. because the verifier cancelled the case (see Verifier.checkAllCases). The search
+	 * loops call this once per node, also if they run in other threads (see ParallelKnapsackSolver).
+	 */
+	protected void stopIfInterrupted() {
+		if (creatingThread.isInterrupted()) throw new CancellationException("The knapsack search was interrupted");
+	}
+
 	/**
 	 * The recursive method that finds the heaviest pattern.
 	 * @param typeIndexInPermutation the type-index (w.r.t. the permutation) of the next item to add to the pattern
 	 * @param pattern the current pattern
 	 */
 	private void packRecursively(int typeIndexInPermutation, KnapsackPattern pattern) {
+		stopIfInterrupted();
 		BigFraction expansion = findMaxExpansionFitting(typeIndexInPermutation, pattern);
 
 		//compute upper bound by multiplying the maximum expansion found above by 
@@ -116,16 +377,24 @@ public class KnapsackSolver {
 			maxWeightFound = upperBound; //store the pattern and its weight
 			heaviestPattern = pattern.copy();
 		} else { //add items of type typeIndexInPermutation to this pattern
+			//if this sub-problem was already searched, the weight that can be added to the pattern is at most
+			//the bound stored for it; if this does not beat the best pattern found so far, skip this branch
+			BigFraction bound = transpositionTable==null ? null
+					: transpositionTable.get(typeIndexInPermutation, pattern.getScaledRemainingSpace());
+			if (bound!=null && maxWeightFound.compareTo(pattern.getTotalWeightWithoutSand().add(bound))>0) {
+				return;
+			}
+
 			int typeToAdd = typePermutation[typeIndexInPermutation];
 
 			//find out how many items of the current type we can add
-			int numberOfItemsToAdd = pattern.howManyItemsFit(size[typeToAdd]);
+			int numberOfItemsToAdd = pattern.howManyItemsFit(typeToAdd);
 
 			//check, if we really can add this item (or if it would lead to a forbidden pattern)
-			if (!check.canAdd(size[typeToAdd], pattern)) numberOfItemsToAdd = 0;
+			if (!compiledCheck.canAdd(typeToAdd, pattern.getTypes())) numberOfItemsToAdd = 0;
 
 			//now, add that many items to the current pattern
-			pattern.addItems(size[typeToAdd], weight[typeToAdd], numberOfItemsToAdd);
+			pattern.addItems(typeToAdd, numberOfItemsToAdd);
 
 			//now, we try to add items of smaller size to this pattern, while we decrease the number of items
 			//of the current type (i.e. we start with adding smaller items to the pattern that contains
@@ -139,10 +408,16 @@ public class KnapsackSolver {
 				//now, reduce the number of current items by one
 				numberOfItemsToAdd--;
 				if (numberOfItemsToAdd>=0) {
-					pattern.removeItem(size[typeToAdd]);
+					pattern.removeItem(typeToAdd);
 				}
 			}
-			pattern.removeAllItems(size[typeToAdd]);
+			pattern.removeAllItems(typeToAdd);
+
+			//every completion of the pattern was either pruned or compared to the heaviest pattern found at
+			//that time, so none of them adds more weight than the following bound
+			if (transpositionTable!=null)
+				transpositionTable.put(typeIndexInPermutation, pattern.getScaledRemainingSpace(),
+						maxWeightFound.subtract(pattern.getTotalWeightWithoutSand()));
 		}
 	}
 
@@ -151,13 +426,12 @@ public class KnapsackSolver {
 	 * the remaining space of the given pattern and returns its expansion.
 	 */
 	private BigFraction findMaxExpansionFitting(int type, KnapsackPattern pattern) {
-		int i = type; 
-		while (i<typePermutation.length && pattern.getRemainingSpace().compareTo(size[typePermutation[i]])<=0) ++i;
+		int i = expansionIndex.firstFitting(type, pattern.getScaledRemainingSpace());
 		BigFraction expansion;
 		if (i==typePermutation.length) {
 			expansion = sandExpansion;
 		} else {
-			expansion = weight[typePermutation[i]].divide(size[typePermutation[i]]);
+			expansion = this.expansion[i];
 		}
 		if(expansion.compareTo(sandExpansion)<0)
 			expansion = sandExpansion;
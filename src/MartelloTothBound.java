@@ -0,0 +1,63 @@
+import java.math.BigInteger;
+
+
+/**
+ * This bound is the bound U3 of Martello and Toth for the unbounded knapsack problem, adapted to items
+ * that have to fit strictly. Let 1, 2, 3 be the first three types (w.r.t. the permutation) that fit into
+ * the remaining space r, let n1 be the number of items of type 1 that fit, let n2 be the number of items
+ * of type 2 that fit into the space left by these items and let c be the space left after that.
+ * - If a pattern contains more than n1 - k items of type 1, where k is the number of items of type 1 that
+ *   have to be removed so that another item of type 2 fits, then it contains at most n2 items of type 2.
+ *   Its weight is at most U0 = n1*w1 + n2*w2 + c*e3.
+ * - Otherwise, it contains at most X1 = n1 - k items of type 1 and its weight is at most
+ *   U1 = X1*w1 + (r - X1*s1)*e2.
+ * The bound is max(U0, U1), which is never larger than the bound of FractionalBound. If there is no
+ * type 2 or 3, sand takes its place.
+ *
+ */
+public class MartelloTothBound implements KnapsackBound {
+
+	@Override
+	public boolean canBePruned(IntegerKnapsackSolver solver, int typeIndexInPermutation, BigInteger remainingSpace,
+			BigInteger totalWeight, BigInteger maxWeightFound) {
+		return canBePruned((ScaledTypes) solver, typeIndexInPermutation, remainingSpace, totalWeight, maxWeightFound);
+	}
+
+	/**
+	 * Checks whether every completion of the given partial pattern by the types at or after the given index
+	 * is strictly lighter than maxWeightFound.
+	 */
+	public static boolean canBePruned(ScaledTypes solver, int typeIndexInPermutation, BigInteger remainingSpace,
+			BigInteger totalWeight, BigInteger maxWeightFound) {
+		int numberOfTypes = solver.getNumberOfTypes();
+
+		//type 1 and the space left after packing as many items of it as possible
+		int first = solver.firstFitting(typeIndexInPermutation, remainingSpace);
+		if (first==numberOfTypes) return solver.isHeavierThanFilling(maxWeightFound, totalWeight, remainingSpace, first);
+		int n1 = solver.howManyItemsFit(first, remainingSpace);
+		BigInteger space1 = remainingSpace.subtract(solver.getScaledSize(first).multiply(BigInteger.valueOf(n1)));
+		BigInteger weight1 = totalWeight.add(solver.getScaledWeight(first).multiply(BigInteger.valueOf(n1)));
+
+		//type 2 and the space left after packing as many items of it as possible
+		int second = solver.firstFitting(first+1, remainingSpace);
+		if (second==numberOfTypes) //the rest of the pattern is filled with sand, so this bound is exact
+			return solver.isHeavierThanFilling(maxWeightFound, weight1, space1, second);
+		int n2 = solver.howManyItemsFit(second, space1);
+		BigInteger space2 = space1.subtract(solver.getScaledSize(second).multiply(BigInteger.valueOf(n2)));
+		BigInteger weight2 = weight1.add(solver.getScaledWeight(second).multiply(BigInteger.valueOf(n2)));
+
+		//U0
+		int third = solver.firstFitting(second+1, remainingSpace);
+		if (!solver.isHeavierThanFilling(maxWeightFound, weight2, space2, third)) return false;
+
+		//U1: another item of type 2 fits iff we free space2 - s2 + 1 more units of space
+		BigInteger missingSpace = solver.getScaledSize(second).subtract(space2).add(BigInteger.ONE);
+		BigInteger[] qr = missingSpace.divideAndRemainder(solver.getScaledSize(first));
+		int k = qr[0].intValue() + (qr[1].signum()>0 ? 1 : 0);
+		int x1 = n1-k;
+		if (x1<0) return true; //there is no pattern with at most x1 items of type 1
+		return solver.isHeavierThanFilling(maxWeightFound,
+				totalWeight.add(solver.getScaledWeight(first).multiply(BigInteger.valueOf(x1))),
+				remainingSpace.subtract(solver.getScaledSize(first).multiply(BigInteger.valueOf(x1))), second);
+	}
+}
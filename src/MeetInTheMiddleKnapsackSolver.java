@@ -0,0 +1,263 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ *
+ * This knapsack solver splits every pattern into a prefix and a tail. The prefix consists of the items
+ * of size at least 1/3 (the large types and the medium types); as items have to fit strictly, a pattern
+ * contains at most two of them, so all prefixes can be enumerated up front. The tail consists of the
+ * small items and is searched like in IntegerKnapsackSolver, but only over the small types.
+ *
+ * The prefixes only differ in their weight and their remaining space, so the tails of all prefixes are
+ * sub-problems of one knapsack problem over the small types whose capacity is the remaining space. For
+ * these sub-problems, the solver keeps a table of upper bounds on the weight of the tail (incl. sand) by
+ * remaining space. As the weight of the best tail does not decrease if the remaining space grows, the
+ * bound for some space is also a bound for all smaller spaces. A prefix is skipped if the table shows
+ * that it cannot be completed to a pattern at least as heavy as the heaviest one found so far. Within the
+ * tail searches, the transposition table (keyed by position and remaining space) is used as well, as the
+ * tail does not depend on the prefix.
+ *
+ * The prefixes are searched in descending order of the Dantzig bound, i.e., their weight plus the
+ * remaining space filled with the maximum expansion of the small types; once this bound is below the
+ * heaviest weight found, all remaining prefixes can be skipped.
+ *
+ * The solver can only be used if the check only restricts prefix types; otherwise, the tail would depend
+ * on the prefix and the whole tree is searched as in IntegerKnapsackSolver. The result is the same pattern
+ * as the one of IntegerKnapsackSolver: the tail search keeps the order of the small types, and patterns
+ * with different prefixes are compared in the order of the whole permutation.
+ *
+ */
+public class MeetInTheMiddleKnapsackSolver extends IntegerKnapsackSolver {
+
+	public MeetInTheMiddleKnapsackSolver(BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check,
+			BigFraction sandExpansion) {
+		super(sizes, weights, check, sandExpansion);
+	}
+
+	private int[] tailPosition; //the position in the whole permutation of each type of the tail
+	private int numberOfTypes; //the length of the whole permutation
+	private Prefix currentPrefix; //the prefix of the current tail search
+	private BigInteger boundDenominator; //the denominator of the Dantzig bounds of all prefixes
+	private TreeMap<BigInteger, BigInteger> tailBound; //upper bounds on the weight of the tail, by remaining space
+	private int numberOfPrefixes;
+	private int numberOfSearchedPrefixes;
+	private int numberOfPrefixesPrunedByTable;
+
+	@Override
+	protected void search() {
+		numberOfTypes = typePermutation.length;
+		boolean[] isPrefixType = new boolean[numberOfTypes];
+		int tailLength = 0;
+		for (int i = 0; i<numberOfTypes; ++i) {
+			isPrefixType[i] = scaledSize[i].multiply(BigInteger.valueOf(3)).compareTo(capacity)>=0;
+			if (!isPrefixType[i] && compiledCheck.isConstrained(typePermutation[i])) {
+				//the tail depends on the prefix, so we search the whole tree
+				super.search();
+				return;
+			}
+			if (!isPrefixType[i]) tailLength++;
+		}
+		List<Prefix> prefixes = createPrefixes(isPrefixType);
+
+		//from now on, the search only considers the tail types
+		int[] permutation = typePermutation;
+		BigInteger[] prefixSize = scaledSize;
+		BigInteger[] prefixWeight = scaledWeight;
+		tailPosition = new int[tailLength];
+		typePermutation = new int[tailLength];
+		scaledSize = new BigInteger[tailLength];
+		scaledWeight = new BigInteger[tailLength];
+		for (int i = 0, j = 0; i<numberOfTypes; ++i) {
+			if (isPrefixType[i]) continue;
+			tailPosition[j] = i;
+			typePermutation[j] = permutation[i];
+			scaledSize[j] = prefixSize[i];
+			scaledWeight[j] = prefixWeight[i];
+			j++;
+		}
+		expansionIndex = new ExpansionIndex<>(scaledSize);
+		if (transpositionTable==null && Util.transpositionTableSize>0)
+			transpositionTable = new TranspositionTable<>(Util.transpositionTableSize);
+		tailBound = new TreeMap<>();
+		numberOfPrefixes = prefixes.size();
+		numberOfSearchedPrefixes = 0;
+		numberOfPrefixesPrunedByTable = 0;
+
+		for (Prefix prefix : prefixes) {
+			if (searchStopped.get()) {
+				//if the budget is exhausted, the bound of this prefix bounds all remaining prefixes
+				if (budget!=null && budget.isExhausted()) budget.addOpenBound(new BigFraction(prefix.boundNumerator, boundDenominator));
+				break;
+			}
+			if (getMaxWeightFound().multiply(boundDenominator).compareTo(prefix.boundNumerator)>0) break;
+			BigInteger bound = getTailBound(prefix.remainingSpace);
+			if (bound!=null && getMaxWeightFound().compareTo(prefix.totalWeight.add(bound))>0) {
+				numberOfPrefixesPrunedByTable++;
+				continue;
+			}
+
+			numberOfSearchedPrefixes++;
+			currentPrefix = prefix;
+			searchSubtree(0, prefix.remainingSpace, prefix.totalWeight, new int[tailLength], null);
+			if (!searchStopped.get()) putTailBound(prefix.remainingSpace, getMaxWeightFound().subtract(prefix.totalWeight));
+		}
+
+		//the pattern is created w.r.t. the whole permutation
+		currentPrefix = null;
+		typePermutation = permutation;
+		scaledSize = prefixSize;
+		scaledWeight = prefixWeight;
+	}
+
+	/**
+	 * Creates all prefixes, i.e., all patterns of at most two items of the prefix types that fit and that
+	 * the check allows, and sorts them in descending order of their Dantzig bound. Prefixes whose bound is
+	 * below the heaviest weight found so far (e.g., the weight of a start pattern) are left out.
+	 */
+	private List<Prefix> createPrefixes(boolean[] isPrefixType) {
+		//the maximum expansion of the tail is the one of the first tail type, or the sand expansion
+		int firstTailType = 0;
+		while (firstTailType<numberOfTypes && isPrefixType[firstTailType]) ++firstTailType;
+		BigInteger expansionNumerator = firstTailType<numberOfTypes ? scaledWeight[firstTailType] : scaledSandExpansion;
+		boundDenominator = firstTailType<numberOfTypes ? scaledSize[firstTailType] : BigInteger.ONE;
+
+		//the bound of the empty prefix is capacity * expansion; every item of a prefix type changes this
+		//by its weight minus its size times the expansion, so we only need to add these differences
+		BigInteger emptyBound = capacity.multiply(expansionNumerator);
+		BigInteger minimumDifference = getMaxWeightFound().multiply(boundDenominator).subtract(emptyBound);
+		final BigInteger[] difference = new BigInteger[numberOfTypes];
+		List<Integer> prefixTypes = new ArrayList<>();
+		for (int i = 0; i<numberOfTypes; ++i) {
+			if (!isPrefixType[i] || scaledSize[i].compareTo(capacity)>=0) continue;
+			difference[i] = scaledWeight[i].multiply(boundDenominator).subtract(scaledSize[i].multiply(expansionNumerator));
+			prefixTypes.add(i);
+		}
+		Collections.sort(prefixTypes, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer arg0, Integer arg1) {
+				return difference[arg1].compareTo(difference[arg0]);
+			}
+		});
+
+		List<Prefix> prefixes = new ArrayList<>();
+		if (minimumDifference.signum()<=0) prefixes.add(new Prefix(-1, -1, emptyBound));
+		for (int a = 0; a<prefixTypes.size(); ++a) {
+			int i = prefixTypes.get(a);
+			BigInteger d = difference[i];
+			if (d.compareTo(minimumDifference)<0 && d.add(d).compareTo(minimumDifference)<0) break;
+			if (d.compareTo(minimumDifference)>=0) prefixes.add(new Prefix(i, -1, emptyBound.add(d)));
+			for (int b = a; b<prefixTypes.size(); ++b) {
+				int j = prefixTypes.get(b);
+				if (d.add(difference[j]).compareTo(minimumDifference)<0) break;
+				if (scaledSize[i].add(scaledSize[j]).compareTo(capacity)>=0 || !canAdd(i, j)) continue;
+				prefixes.add(new Prefix(i, j, emptyBound.add(d).add(difference[j])));
+			}
+		}
+
+		Collections.sort(prefixes, new Comparator<Prefix>() {
+
+			@Override
+			public int compare(Prefix arg0, Prefix arg1) {
+				return arg1.boundNumerator.compareTo(arg0.boundNumerator);
+			}
+		});
+		return prefixes;
+	}
+
+	/**
+	 * Checks whether the check allows an item of the type at position second of the permutation in a
+	 * pattern that contains one item of the type at position first.
+	 */
+	private boolean canAdd(int first, int second) {
+		BitSet typesInPattern = new BitSet();
+		typesInPattern.set(typePermutation[first]);
+		return compiledCheck.canAdd(typePermutation[second], typesInPattern);
+	}
+
+	/**
+	 * Returns the best bound on the weight of the tail for the given remaining space that is stored in the
+	 * table, or null if there is none. As the bounds in the table grow with the space (see putTailBound),
+	 * this is the bound of the next larger (or equal) space.
+	 */
+	private BigInteger getTailBound(BigInteger remainingSpace) {
+		Map.Entry<BigInteger, BigInteger> entry = tailBound.ceilingEntry(remainingSpace);
+		return entry==null ? null : entry.getValue();
+	}
+
+	/**
+	 * Stores a bound on the weight of the tail for the given remaining space and removes the entries of
+	 * smaller spaces that have a bound that is not smaller.
+	 */
+	private void putTailBound(BigInteger remainingSpace, BigInteger bound) {
+		BigInteger old = getTailBound(remainingSpace);
+		if (old!=null && old.compareTo(bound)<=0) return;
+		tailBound.put(remainingSpace, bound);
+		Map.Entry<BigInteger, BigInteger> entry = tailBound.lowerEntry(remainingSpace);
+		while (entry!=null && entry.getValue().compareTo(bound)>=0) {
+			tailBound.remove(entry.getKey());
+			entry = tailBound.lowerEntry(remainingSpace);
+		}
+	}
+
+	/**
+	 * The patterns found in the tail search are indexed w.r.t. the tail types and do not contain the
+	 * prefix, so they are translated to the whole permutation here.
+	 */
+	@Override
+	protected void patternFound(BigInteger totalWeight, int[] cardinality) {
+		if (currentPrefix==null) {
+			super.patternFound(totalWeight, cardinality);
+			return;
+		}
+		int[] patternCardinality = new int[numberOfTypes];
+		for (int i = 0; i<cardinality.length; ++i)
+			patternCardinality[tailPosition[i]] = cardinality[i];
+		if (currentPrefix.first>=0) patternCardinality[currentPrefix.first]++;
+		if (currentPrefix.second>=0) patternCardinality[currentPrefix.second]++;
+		super.patternFound(totalWeight, patternCardinality);
+	}
+
+	@Override
+	public String getStatistics() {
+		if (statistics==null) return null;
+		return super.getStatistics() + "; prefixes: " + numberOfPrefixes + ", searched: " + numberOfSearchedPrefixes
+				+ ", pruned by the tail table: " + numberOfPrefixesPrunedByTable;
+	}
+
+	/**
+	 * A pattern of at most two items of the prefix types together with its Dantzig bound, which is stored
+	 * as a fraction boundNumerator / boundDenominator (in units of 1/Q). The items are given by the
+	 * positions of their types in the permutation; a position is -1 if there is no such item.
+	 */
+	private class Prefix {
+		final int first;
+		final int second;
+		final BigInteger remainingSpace;
+		final BigInteger totalWeight;
+		final BigInteger boundNumerator;
+
+		Prefix(int first, int second, BigInteger boundNumerator) {
+			this.first = first;
+			this.second = second;
+			this.boundNumerator = boundNumerator;
+			BigInteger space = capacity;
+			BigInteger weight = BigInteger.ZERO;
+			for (int i : new int[] {first, second}) {
+				if (i<0) continue;
+				space = space.subtract(scaledSize[i]);
+				weight = weight.add(scaledWeight[i]);
+			}
+			remainingSpace = space;
+			totalWeight = weight;
+		}
+	}
+}
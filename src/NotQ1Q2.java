@@ -1,3 +1,5 @@
+import java.util.BitSet;
+
 import org.apache.commons.math3.fraction.BigFraction;
 
 
@@ -11,14 +13,47 @@ public class NotQ1Q2 implements PatternFeasibilityCheck {
 		this.sizeOfTypeOfR = sizeOfTypeOfR;
 	}
 
+	public BigFraction getSizeOfLarge() {
+		return sizeOfLarge;
+	}
+
+	public BigFraction getSizeOfTypeOfR() {
+		return sizeOfTypeOfR;
+	}
+
+	/**
+	 * The compiled check stores the types of size sizeOfLarge and of size sizeOfTypeOfR as bitsets. A type
+	 * of one of these sets cannot be added to a pattern that contains a type of the other set.
+	 */
 	@Override
-	public boolean canAdd(BigFraction size, KnapsackPattern pattern) {
-		if (!sizeOfLarge.equals(size) && !sizeOfTypeOfR.equals(size)) return true; //all types other than these two types can be added freely
-		
-		if (sizeOfLarge.equals(size) && pattern.containsSize(sizeOfTypeOfR)) // we want to add a large (1-r) item, so we cannot have a t(r)-type item
-			return false;
-		else if (sizeOfTypeOfR.equals(size) && pattern.containsSize(sizeOfLarge)) //we want to add a t(r)-type item, so we cannot have a (1-r)-item
-			return false;
-		return true;
+	public CompiledFeasibilityCheck compile(BigFraction[] sizes) {
+		final BitSet large = new BitSet(sizes.length);
+		final BitSet typeOfR = new BitSet(sizes.length);
+		for (int i = 0; i<sizes.length; ++i) {
+			if (sizeOfLarge.equals(sizes[i])) large.set(i);
+			if (sizeOfTypeOfR.equals(sizes[i])) typeOfR.set(i);
+		}
+
+		return new CompiledFeasibilityCheck() {
+
+			@Override
+			public boolean canAdd(int type, BitSet typesInPattern) {
+				if (large.get(type)) // we want to add a large (1-r) item, so we cannot have a t(r)-type item
+					return !typeOfR.intersects(typesInPattern);
+				if (typeOfR.get(type)) //we want to add a t(r)-type item, so we cannot have a (1-r)-item
+					return !large.intersects(typesInPattern);
+				return true; //all types other than these two types can be added freely
+			}
+
+			@Override
+			public boolean isConstrained(int type) {
+				return large.get(type) || typeOfR.get(type);
+			}
+
+			@Override
+			public boolean excludesTypes(BitSet typesInPattern) {
+				return large.intersects(typesInPattern) || typeOfR.intersects(typesInPattern);
+			}
+		};
 	}
 }
@@ -0,0 +1,125 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ *
+ * This knapsack solver searches the tree of IntegerKnapsackSolver with several threads. The top levels
+ * of the search tree (w.r.t. the permutation of types) are split into fork/join tasks, which are executed
+ * by a work-stealing ForkJoinPool. All tasks share the heaviest pattern found so far, which is replaced
+ * atomically without locks, so every task prunes with the best bound known to any task.
+ *
+ * The result is the same pattern as the one of the sequential solver: if several patterns are equally
+ * heavy, the one that comes last in the sequential search order is returned.
+ *
+ */
+public class ParallelKnapsackSolver extends IntegerKnapsackSolver {
+
+	/**
+	 * The pool that executes the tasks of all parallel solvers.
+	 */
+	private static final ForkJoinPool pool = new ForkJoinPool(Util.numberOfThreads);
+
+	/**
+	 * The number of tasks we aim for per thread; more tasks balance the work better, but every task
+	 * needs its own copy of the pattern.
+	 */
+	private static final int TASKS_PER_THREAD = 16;
+
+	public ParallelKnapsackSolver(BigFraction[] sizes, BigFraction[] weights, PatternFeasibilityCheck check,
+			BigFraction sandExpansion) {
+		super(sizes, weights, check, sandExpansion);
+	}
+
+	/**
+	 * Runs the tasks and waits for them. Unlike ForkJoinPool.invoke, the waiting can be interrupted; then the
+	 * interrupt is passed on to the tasks (see stopIfInterrupted).
+	 */
+	@Override
+	protected void search() {
+		SearchTask task = new SearchTask(0, capacity, BigInteger.ZERO, new int[typePermutation.length], emptyPattern,
+				Util.numberOfThreads * TASKS_PER_THREAD);
+		pool.execute(task);
+		try {
+			task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("The knapsack search was interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * This task searches the subtree of one partial pattern. As long as the subtree is supposed to be
+	 * split into more than one task, the task creates one subtask for each number of items of the
+	 * current type; otherwise, it searches the subtree sequentially.
+	 */
+	private class SearchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int typeIndexInPermutation;
+		private BigInteger remainingSpace;
+		private BigInteger totalWeight;
+		private final int[] cardinality;
+		private final KnapsackPattern pattern;
+		private final int numberOfTasks; //the number of tasks this subtree should be split into
+
+		SearchTask(int typeIndexInPermutation, BigInteger remainingSpace, BigInteger totalWeight, int[] cardinality,
+				KnapsackPattern pattern, int numberOfTasks) {
+			this.typeIndexInPermutation = typeIndexInPermutation;
+			this.remainingSpace = remainingSpace;
+			this.totalWeight = totalWeight;
+			this.cardinality = cardinality;
+			this.pattern = pattern;
+			this.numberOfTasks = numberOfTasks;
+		}
+
+		@Override
+		protected void compute() {
+			if (searchStopped.get()) { //another task already found a pattern above the bound or exhausted the budget
+				addOpenSubtree(typeIndexInPermutation, remainingSpace, totalWeight);
+				return;
+			}
+
+			//follow the path while there is only one choice, so that we do not create a task for each level
+			int numberOfItemsToAdd = 0;
+			while (numberOfTasks>1 && typeIndexInPermutation<typePermutation.length) {
+				if (canBePruned(typeIndexInPermutation, remainingSpace, totalWeight, pattern)) return;
+				numberOfItemsToAdd = howManyItemsFit(typeIndexInPermutation, remainingSpace, pattern);
+				if (numberOfItemsToAdd>0) break;
+				typeIndexInPermutation++;
+			}
+			if (numberOfTasks<=1 || typeIndexInPermutation==typePermutation.length) {
+				searchSubtree(typeIndexInPermutation, remainingSpace, totalWeight, cardinality, pattern);
+				return;
+			}
+
+			//create one task for each number of items of the current type
+			int typeToAdd = typePermutation[typeIndexInPermutation];
+			List<SearchTask> tasks = new ArrayList<>();
+			for (int n = numberOfItemsToAdd; n>=0; --n) {
+				int[] card = cardinality.clone();
+				card[typeIndexInPermutation] = n;
+				KnapsackPattern p = null;
+				if (pattern!=null) {
+					p = pattern.copy();
+					p.addItems(typeToAdd, n);
+				}
+				tasks.add(new SearchTask(typeIndexInPermutation+1,
+						remainingSpace.subtract(scaledSize[typeIndexInPermutation].multiply(BigInteger.valueOf(n))),
+						totalWeight.add(scaledWeight[typeIndexInPermutation].multiply(BigInteger.valueOf(n))),
+						card, p, numberOfTasks/(numberOfItemsToAdd+1)));
+			}
+			invokeAll(tasks);
+		}
+	}
+}
@@ -0,0 +1,410 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ *
+ * This knapsack solver considers a family of knapsack problems at once: the weight of every type is an
+ * affine function of a parameter y in [0,1], i.e., (1-y)*w0 + y*w1, where w0 and w1 are the weights for
+ * y=0 and y=1. Then the weight of every pattern (incl. sand) is (1-y)*F0 + y*F1, where F0 and F1 are its
+ * weights for y=0 and y=1, so each pattern is a line, and the weight of the heaviest pattern for each y is
+ * the upper envelope of these lines. The envelope is convex, so the values of y for which no pattern is
+ * above a given threshold form an interval.
+ *
+ * The solver computes this interval in one depth-first search. It only needs the part of the envelope
+ * that crosses the threshold: every pattern found that is above the threshold at one end of the current
+ * interval cuts the interval down to the y where its line meets the threshold, and a pattern that is above
+ * the threshold at both ends shows that the interval is empty. The weight of the heaviest completion of a
+ * partial pattern is convex in y, too, so it is at most the threshold on the interval if this holds at
+ * both ends. Hence, a partial pattern can be pruned if an upper bound for its completions is at most the
+ * threshold at both ends of the interval.
+ *
+ * Like in IntegerKnapsackSolver, sizes and weights are scaled to integers: sizes in units of 1/C and
+ * weights in units of 1/Q (see scaleInput).
+ *
+ */
+public class ParametricKnapsackSolver {
+
+	private final BigFraction[] size;
+	private final BigFraction[] weightAt0;
+	private final BigFraction[] weightAt1;
+	private final CompiledFeasibilityCheck compiledCheck;
+	private final BigFraction sandExpansion;
+
+	public ParametricKnapsackSolver(BigFraction[] sizes, BigFraction[] weightsAt0, BigFraction[] weightsAt1,
+			PatternFeasibilityCheck check, BigFraction sandExpansion) {
+		this.size = sizes;
+		this.weightAt0 = weightsAt0;
+		this.weightAt1 = weightsAt1;
+		this.compiledCheck = check.compile(sizes);
+		this.sandExpansion = sandExpansion;
+	}
+
+	private int[] typePermutation; //the types that are searched, in descending order of their expansion for y=1/2
+	private BigInteger[] scaledSize; //in units of 1/C, indexed w.r.t. the permutation
+	private BigInteger[] scaledWeightAt0; //in units of 1/Q, indexed w.r.t. the permutation
+	private BigInteger[] scaledWeightAt1;
+	private BigInteger scaledSandExpansion; //weight of sand of size 1/C in units of 1/Q
+	private BigInteger capacity; //C
+	private BigInteger quotient; //Q
+
+	private BigFraction scaledThreshold; //the threshold in units of 1/Q
+	private BigFraction[] interval; //the values of y for which no pattern found is above the threshold; null if there are none
+	private IntervalEnd[] ends; //the ends of the interval
+	private List<Line> certificate; //the patterns that cut the interval down, see getCertificate
+	private long numberOfNodes;
+	private int numberOfCuts;
+
+	/**
+	 * This method computes the interval of all y in [0,1] for which no pattern is above the given threshold
+	 * (see getFeasibleInterval).
+	 */
+	public void solve(BigFraction threshold) {
+		createPermutation();
+		scaleInput();
+
+		scaledThreshold = threshold.multiply(quotient);
+		interval = new BigFraction[] {BigFraction.ZERO, BigFraction.ONE};
+		ends = new IntervalEnd[] {new IntervalEnd(interval[0]), new IntervalEnd(interval[1])};
+		certificate = new ArrayList<>();
+		certificate.add(null);
+		certificate.add(null);
+		numberOfNodes = 0;
+		numberOfCuts = 0;
+		search();
+	}
+
+	/**
+	 * Only types whose expansion is at least the sand expansion for y=0 or for y=1 are considered: for
+	 * other types, the expansion is below the sand expansion for every y, so replacing their items by sand
+	 * does not decrease the weight of a pattern. Like in KnapsackSolver.removeDominatedTypes, a type is also
+	 * left out if another type is at most as large and at least as heavy, here for y=0 and for y=1 (and hence
+	 * for every y); as only the interval is computed, it does not matter which one of two equal types is kept.
+	 */
+	private void createPermutation() {
+		List<Integer> list = new ArrayList<>();
+		for (int i = 0; i<size.length; ++i)
+			if (weightAt0[i].divide(size[i]).compareTo(sandExpansion)>=0 || weightAt1[i].divide(size[i]).compareTo(sandExpansion)>=0)
+				list.add(i);
+		if (Util.presolve) {
+			List<Integer> undominated = new ArrayList<>();
+			for (int j : list)
+				if (compiledCheck.isConstrained(j) || !isDominated(j, list)) undominated.add(j);
+			list = undominated;
+		}
+		final BigFraction[] expansion = new BigFraction[size.length];
+		for (int i : list) expansion[i] = weightAt0[i].add(weightAt1[i]).divide(size[i]);
+		list.sort(new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer arg0, Integer arg1) {
+				return expansion[arg1].compareTo(expansion[arg0]);
+			}
+		});
+		typePermutation = new int[list.size()];
+		for (int i = 0; i<typePermutation.length; ++i) typePermutation[i] = list.get(i);
+	}
+
+	private boolean isDominated(int j, List<Integer> types) {
+		for (int i : types) {
+			if (i==j || compiledCheck.isConstrained(i)) continue;
+			if (size[i].compareTo(size[j])>0 || weightAt0[i].compareTo(weightAt0[j])<0 || weightAt1[i].compareTo(weightAt1[j])<0) continue;
+			boolean equal = size[i].equals(size[j]) && weightAt0[i].equals(weightAt0[j]) && weightAt1[i].equals(weightAt1[j]);
+			if (!equal || i>j) return true; //of equal types, the last one is kept
+		}
+		return false;
+	}
+
+	/**
+	 * Computes the common denominators and the scaled sizes and weights, as in IntegerKnapsackSolver.
+	 */
+	private void scaleInput() {
+		BigInteger sizeDenominator = Scaling.commonDenominator(size, typePermutation);
+		BigInteger weightDenominator = Scaling.lcm(Scaling.commonDenominator(weightAt0, typePermutation),
+				Scaling.commonDenominator(weightAt1, typePermutation));
+		capacity = sizeDenominator;
+		quotient = weightDenominator.multiply(capacity).multiply(sandExpansion.getDenominator());
+		scaledSandExpansion = sandExpansion.getNumerator().multiply(weightDenominator);
+
+		int n = typePermutation.length;
+		scaledSize = new BigInteger[n];
+		scaledWeightAt0 = new BigInteger[n];
+		scaledWeightAt1 = new BigInteger[n];
+		for (int i = 0; i<n; ++i) {
+			scaledSize[i] = Scaling.scale(size[typePermutation[i]], capacity);
+			scaledWeightAt0[i] = Scaling.scale(weightAt0[typePermutation[i]], quotient);
+			scaledWeightAt1[i] = Scaling.scale(weightAt1[typePermutation[i]], quotient);
+		}
+	}
+
+	/**
+	 * Searches the whole tree like IntegerKnapsackSolver.searchSubtree: at each level, as many items as
+	 * possible of the type at this level are added first, and then one item less at a time.
+	 */
+	private void search() {
+		int n = typePermutation.length;
+		BigInteger[] space = new BigInteger[n+1];
+		BigInteger[] weight0 = new BigInteger[n+1];
+		BigInteger[] weight1 = new BigInteger[n+1];
+		int[] cardinality = new int[n];
+		BitSet typesInPattern = new BitSet();
+		space[0] = capacity;
+		weight0[0] = weight1[0] = BigInteger.ZERO;
+
+		int level = 0;
+		boolean newNode = true; //whether we enter the node at this level or come back to it from a child
+		while (level>=0 && interval!=null) {
+			if (newNode) {
+				numberOfNodes++;
+				if (Thread.currentThread().isInterrupted()) throw new CancellationException("The knapsack search was interrupted");
+				boolean expand = !canBePruned(level, space[level], weight0[level], weight1[level]);
+				if (expand && level==n) { //we have added all item sizes - we are done
+					patternFound(weight0[level].add(space[level].multiply(scaledSandExpansion)),
+							weight1[level].add(space[level].multiply(scaledSandExpansion)), cardinality);
+					expand = false;
+				}
+				if (expand) {
+					int numberOfItemsToAdd = compiledCheck.canAdd(typePermutation[level], typesInPattern)
+							? space[level].subtract(BigInteger.ONE).divide(scaledSize[level]).intValue() : 0;
+					BigInteger number = BigInteger.valueOf(numberOfItemsToAdd);
+					space[level+1] = space[level].subtract(scaledSize[level].multiply(number));
+					weight0[level+1] = weight0[level].add(scaledWeightAt0[level].multiply(number));
+					weight1[level+1] = weight1[level].add(scaledWeightAt1[level].multiply(number));
+					cardinality[level] = numberOfItemsToAdd;
+					if (numberOfItemsToAdd>0) typesInPattern.set(typePermutation[level]);
+					level++;
+				} else {
+					newNode = false;
+					level--;
+				}
+			} else if (cardinality[level]>0) {
+				//remove one item of the current type and go to the next level again
+				space[level+1] = space[level+1].add(scaledSize[level]);
+				weight0[level+1] = weight0[level+1].subtract(scaledWeightAt0[level]);
+				weight1[level+1] = weight1[level+1].subtract(scaledWeightAt1[level]);
+				cardinality[level]--;
+				if (cardinality[level]==0) typesInPattern.clear(typePermutation[level]);
+				newNode = true;
+				level++;
+			} else {
+				level--;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether no completion of the given partial pattern is above the threshold for any y in the
+	 * interval, i.e., whether the upper bound for its completions is not above the threshold at both ends.
+	 */
+	private boolean canBePruned(int typeIndexInPermutation, BigInteger remainingSpace, BigInteger totalWeightAt0,
+			BigInteger totalWeightAt1) {
+		for (IntervalEnd b : ends)
+			if (!MartelloTothBound.canBePruned(b.remainingTypes[typeIndexInPermutation], 0, remainingSpace,
+					b.getWeight(totalWeightAt0, totalWeightAt1), b.minWeightAboveThreshold))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Cuts the interval with the line of the given pattern.
+	 */
+	private void patternFound(BigInteger weightAt0, BigInteger weightAt1, int[] cardinality) {
+		boolean aboveAtLower = ends[0].isAboveThreshold(ends[0].getWeight(weightAt0, weightAt1));
+		boolean aboveAtUpper = ends[1].isAboveThreshold(ends[1].getWeight(weightAt0, weightAt1));
+		if (!aboveAtLower && !aboveAtUpper) return;
+		numberOfCuts++;
+		Line line = new Line(weightAt0, weightAt1, cardinality.clone());
+		if (aboveAtLower && aboveAtUpper) {
+			//together with the patterns that cut the interval so far, this pattern is above the threshold for every y
+			certificate.add(line);
+			interval = null;
+			return;
+		}
+		//the line meets the threshold at y = (threshold-F0)/(F1-F0)
+		BigFraction y = scaledThreshold.subtract(weightAt0).divide(new BigFraction(weightAt1.subtract(weightAt0)));
+		int end = aboveAtLower ? 0 : 1;
+		interval[end] = y;
+		ends[end] = new IntervalEnd(y);
+		certificate.set(end, line);
+	}
+
+	/**
+	 * Returns the interval of all y in [0,1] for which no pattern is above the threshold, or null if there is
+	 * no such y.
+	 */
+	public BigFraction[] getFeasibleInterval() {
+		return interval==null ? null : interval.clone();
+	}
+
+	/**
+	 * Returns the patterns that cut the interval down, with their weights for the given y: the pattern that
+	 * determines the lower end (if it is above 0), the one that determines the upper end (if it is below 1)
+	 * and, if the interval is empty, the pattern that is above the threshold on the rest of the interval.
+	 * For every y in [0,1], one of them is above the threshold outside of the interval.
+	 */
+	public List<KnapsackPattern> getCertificate(BigFraction y) {
+		List<KnapsackPattern> patterns = new ArrayList<>();
+		for (Line l : certificate)
+			if (l!=null) patterns.add(l.getPattern(y));
+		return patterns;
+	}
+
+	public String getStatistics() {
+		return "Parametric knapsack search: " + numberOfNodes + " nodes, " + numberOfCuts + " cuts of the interval of y";
+	}
+
+	/**
+	 * An end y=p/q of the interval. All weights for this y are multiplied by q, so that the weights of
+	 * patterns are integers again: (q-p)*w0 + p*w1. The upper bound for the completions of a partial pattern
+	 * is the bound of MartelloTothBound for the weights for this y; as the types are ordered differently for
+	 * every y, the types before the current position of the permutation are skipped.
+	 */
+	private class IntervalEnd {
+		final BigFraction y;
+		final BigInteger qMinusP;
+		final BigInteger p;
+		final BigInteger[] scaledWeight; //indexed w.r.t. the permutation
+		final BigInteger scaledSandExpansion;
+		final RemainingTypes[] remainingTypes; //for each position of the permutation, the types at or after it
+		final BigInteger scaledThreshold; //q times the threshold, in units of 1/(QD) where D is the denominator of the threshold
+		final BigInteger minWeightAboveThreshold; //the smallest weight (times q) that is above the threshold
+
+		IntervalEnd(BigFraction y) {
+			this.y = y;
+			this.p = y.getNumerator();
+			this.qMinusP = y.getDenominator().subtract(p);
+			int n = typePermutation.length;
+			scaledWeight = new BigInteger[n];
+			for (int i = 0; i<n; ++i) scaledWeight[i] = getWeight(scaledWeightAt0[i], scaledWeightAt1[i]);
+			scaledSandExpansion = y.getDenominator().multiply(ParametricKnapsackSolver.this.scaledSandExpansion);
+			int[] sorted = sortByExpansion();
+			remainingTypes = new RemainingTypes[n+1];
+			for (int level = 0; level<=n; ++level) {
+				int number = 0;
+				for (int i : sorted) if (i>=level) number++;
+				int[] order = new int[number];
+				number = 0;
+				for (int i : sorted) if (i>=level) order[number++] = i;
+				remainingTypes[level] = new RemainingTypes(order);
+			}
+			scaledThreshold = y.getDenominator().multiply(ParametricKnapsackSolver.this.scaledThreshold.getNumerator());
+			//the weights are integers, so a weight is above the threshold iff it is larger than its floor
+			BigInteger denominator = ParametricKnapsackSolver.this.scaledThreshold.getDenominator();
+			BigInteger[] qr = scaledThreshold.divideAndRemainder(denominator);
+			BigInteger floor = qr[1].signum()<0 ? qr[0].subtract(BigInteger.ONE) : qr[0];
+			minWeightAboveThreshold = floor.add(BigInteger.ONE);
+		}
+
+		/**
+		 * Checks whether a pattern with the given weight (q times its weight for this y) is above the
+		 * threshold.
+		 */
+		boolean isAboveThreshold(BigInteger weight) {
+			return weight.multiply(ParametricKnapsackSolver.this.scaledThreshold.getDenominator()).compareTo(scaledThreshold)>0;
+		}
+
+		/**
+		 * Returns q times the weight for this y of a pattern whose weights for y=0 and y=1 are given.
+		 */
+		BigInteger getWeight(BigInteger weightAt0, BigInteger weightAt1) {
+			return qMinusP.multiply(weightAt0).add(p.multiply(weightAt1));
+		}
+
+		private int[] sortByExpansion() {
+			List<Integer> list = new ArrayList<>();
+			for (int i = 0; i<typePermutation.length; ++i)
+				if (scaledWeight[i].compareTo(scaledSize[i].multiply(scaledSandExpansion))>=0) list.add(i);
+			list.sort(new Comparator<Integer>() {
+
+				@Override
+				public int compare(Integer arg0, Integer arg1) {
+					return scaledWeight[arg1].multiply(scaledSize[arg0]).compareTo(scaledWeight[arg0].multiply(scaledSize[arg1]));
+				}
+			});
+			int[] result = new int[list.size()];
+			for (int i = 0; i<result.length; ++i) result[i] = list.get(i);
+			return result;
+		}
+
+		/**
+		 * The given positions of the permutation with their weights for this y, in descending order of the
+		 * expansion for this y; types below sand are left out.
+		 */
+		private class RemainingTypes implements ScaledTypes {
+			final int[] order;
+
+			RemainingTypes(int[] order) {
+				this.order = order;
+			}
+
+			@Override
+			public int getNumberOfTypes() {
+				return order.length;
+			}
+
+			@Override
+			public BigInteger getScaledSize(int index) {
+				return scaledSize[order[index]];
+			}
+
+			@Override
+			public BigInteger getScaledWeight(int index) {
+				return scaledWeight[order[index]];
+			}
+
+			@Override
+			public int firstFitting(int index, BigInteger remainingSpace) {
+				while (index<order.length && remainingSpace.compareTo(scaledSize[order[index]])<=0) index++;
+				return index;
+			}
+
+			@Override
+			public int howManyItemsFit(int index, BigInteger remainingSpace) {
+				return remainingSpace.subtract(BigInteger.ONE).divide(scaledSize[order[index]]).intValue();
+			}
+
+			@Override
+			public boolean isHeavierThanFilling(BigInteger maxWeightFound, BigInteger totalWeight, BigInteger remainingSpace,
+					int index) {
+				if (index==order.length)
+					return maxWeightFound.compareTo(totalWeight.add(remainingSpace.multiply(scaledSandExpansion)))>0;
+				return maxWeightFound.subtract(totalWeight).multiply(scaledSize[order[index]])
+						.compareTo(remainingSpace.multiply(scaledWeight[order[index]]))>0;
+			}
+		}
+	}
+
+	/**
+	 * The weight of a pattern as a function of y, given by its weights (incl. sand) for y=0 and y=1 in units
+	 * of 1/Q. The cardinality is indexed w.r.t. the permutation.
+	 */
+	private class Line {
+		final BigInteger weightAt0;
+		final BigInteger weightAt1;
+		final int[] cardinality;
+
+		Line(BigInteger weightAt0, BigInteger weightAt1, int[] cardinality) {
+			this.weightAt0 = weightAt0;
+			this.weightAt1 = weightAt1;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * Returns the pattern with the weights for the given y.
+		 */
+		KnapsackPattern getPattern(BigFraction y) {
+			BigFraction[] weights = new BigFraction[size.length];
+			for (int i = 0; i<size.length; ++i)
+				weights[i] = BigFraction.ONE.subtract(y).multiply(ParametricKnapsackSolver.this.weightAt0[i])
+						.add(y.multiply(ParametricKnapsackSolver.this.weightAt1[i]));
+			KnapsackPattern p = new KnapsackPattern(size, weights);
+			for (int i = 0; i<typePermutation.length; ++i) p.addItems(typePermutation[i], cardinality[i]);
+			return p;
+		}
+	}
+}
@@ -1,7 +1,16 @@
 import org.apache.commons.math3.fraction.BigFraction;
 
 
+/**
+ * A side-constraint on the patterns of a knapsack problem. Before a solver uses it, it is compiled for
+ * the types of the knapsack problem, so that all checks work on type indices.
+ *
+ */
 public interface PatternFeasibilityCheck {
 
-	public boolean canAdd(BigFraction size, KnapsackPattern pattern);
+	/**
+	 * Compiles this check for the types with the given sizes; the types are identified by their index
+	 * in this array.
+	 */
+	public CompiledFeasibilityCheck compile(BigFraction[] sizes);
 }
@@ -0,0 +1,158 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ *
+ * A linear program min c^T x subject to Ax <= b and x >= 0, which is solved exactly over the rationals
+ * by the simplex method on a dense tableau. The entering and the leaving variable are chosen by Bland's
+ * rule (the smallest index among all candidates), so the method cannot cycle.
+ *
+ * If some b_i is negative, the slack variables do not form a feasible basis. Then the method first solves
+ * the auxiliary problem min x0 subject to Ax - x0 <= b: pivoting x0 into the row with the most negative b_i
+ * gives a feasible basis, and the original problem is feasible iff the optimum of the auxiliary problem
+ * is 0.
+ *
+ * The LPs solved here have few variables and few constraints, so the tableau is set up anew for every
+ * call of minimize.
+ *
+ */
+public class RationalLP {
+
+	private final int numberOfVariables;
+	private final List<BigFraction[]> coefficients = new ArrayList<>();
+	private final List<BigFraction> bounds = new ArrayList<>();
+
+	private BigFraction[][] tableau; //one row per constraint; the columns are x, the slacks, x0 and b
+	private int[] basis; //the column of the basic variable of each row
+	private int numberOfPivots;
+
+	public RationalLP(int numberOfVariables) {
+		this.numberOfVariables = numberOfVariables;
+	}
+
+	/**
+	 * Adds the constraint a^T x <= b.
+	 */
+	public void addConstraint(BigFraction[] a, BigFraction b) {
+		if (a.length!=numberOfVariables) throw new IllegalArgumentException("Expected " + numberOfVariables + " coefficients but got " + a.length);
+		coefficients.add(a.clone());
+		bounds.add(b);
+	}
+
+	public int getNumberOfConstraints() {
+		return coefficients.size();
+	}
+
+	/**
+	 * Returns the number of pivots of the last call of minimize.
+	 */
+	public int getNumberOfPivots() {
+		return numberOfPivots;
+	}
+
+	/**
+	 * Returns an optimal solution x for the given objective c, or null if the LP is infeasible. If the LP is
+	 * unbounded, an IllegalStateException is thrown.
+	 */
+	public BigFraction[] minimize(BigFraction[] objective) {
+		int m = coefficients.size();
+		int n = numberOfVariables;
+		int auxiliary = n+m; //the column of x0
+		int rhs = n+m+1;
+		tableau = new BigFraction[m][n+m+2];
+		basis = new int[m];
+		numberOfPivots = 0;
+		int mostNegativeRow = -1;
+		for (int i = 0; i<m; ++i) {
+			for (int j = 0; j<n+m+1; ++j) tableau[i][j] = BigFraction.ZERO;
+			for (int j = 0; j<n; ++j) tableau[i][j] = coefficients.get(i)[j];
+			tableau[i][n+i] = BigFraction.ONE;
+			tableau[i][auxiliary] = BigFraction.MINUS_ONE;
+			tableau[i][rhs] = bounds.get(i);
+			basis[i] = n+i;
+			if (bounds.get(i).compareTo(BigFraction.ZERO)<0 && (mostNegativeRow<0 || bounds.get(i).compareTo(bounds.get(mostNegativeRow))<0))
+				mostNegativeRow = i;
+		}
+
+		if (mostNegativeRow>=0) {
+			//phase 1: minimize x0
+			pivot(mostNegativeRow, auxiliary);
+			BigFraction[] cost = new BigFraction[n+m+1];
+			for (int j = 0; j<cost.length; ++j) cost[j] = BigFraction.ZERO;
+			cost[auxiliary] = BigFraction.ONE;
+			if (!runSimplex(cost, auxiliary+1)) throw new IllegalStateException("The auxiliary problem cannot be unbounded");
+			for (int i = 0; i<m; ++i) {
+				if (basis[i]!=auxiliary) continue;
+				if (tableau[i][rhs].compareTo(BigFraction.ZERO)>0) return null; //x0 cannot be 0, so there is no feasible x
+				//x0 is basic with value 0: replace it by another variable of its row, if there is one
+				for (int j = 0; j<auxiliary; ++j) {
+					if (tableau[i][j].compareTo(BigFraction.ZERO)!=0) {
+						pivot(i, j);
+						break;
+					}
+				}
+			}
+		}
+
+		//phase 2: minimize c^T x without x0
+		BigFraction[] cost = new BigFraction[n+m+1];
+		for (int j = 0; j<cost.length; ++j) cost[j] = j<n ? objective[j] : BigFraction.ZERO;
+		if (!runSimplex(cost, auxiliary)) throw new IllegalStateException("The LP is unbounded");
+
+		BigFraction[] x = new BigFraction[n];
+		for (int j = 0; j<n; ++j) x[j] = BigFraction.ZERO;
+		for (int i = 0; i<m; ++i)
+			if (basis[i]<n) x[basis[i]] = tableau[i][rhs];
+		return x;
+	}
+
+	/**
+	 * Runs the simplex method with the given costs, where only the columns before the given one may enter
+	 * the basis. Returns false if the objective is unbounded.
+	 */
+	private boolean runSimplex(BigFraction[] cost, int numberOfColumns) {
+		int rhs = tableau.length==0 ? 0 : tableau[0].length-1;
+		while (true) {
+			//entering variable: the first one with negative reduced cost
+			int entering = -1;
+			for (int j = 0; j<numberOfColumns && entering<0; ++j) {
+				BigFraction reducedCost = cost[j];
+				for (int i = 0; i<tableau.length; ++i)
+					if (tableau[i][j].compareTo(BigFraction.ZERO)!=0) reducedCost = reducedCost.subtract(cost[basis[i]].multiply(tableau[i][j]));
+				if (reducedCost.compareTo(BigFraction.ZERO)<0) entering = j;
+			}
+			if (entering<0) return true;
+
+			//leaving variable: minimum ratio; of several rows with the same ratio, the one with the smallest basic variable
+			int leaving = -1;
+			BigFraction minRatio = null;
+			for (int i = 0; i<tableau.length; ++i) {
+				if (tableau[i][entering].compareTo(BigFraction.ZERO)<=0) continue;
+				BigFraction ratio = tableau[i][rhs].divide(tableau[i][entering]);
+				int c = minRatio==null ? -1 : ratio.compareTo(minRatio);
+				if (c<0 || (c==0 && basis[i]<basis[leaving])) {
+					leaving = i;
+					minRatio = ratio;
+				}
+			}
+			if (leaving<0) return false;
+			pivot(leaving, entering);
+		}
+	}
+
+	private void pivot(int row, int column) {
+		numberOfPivots++;
+		BigFraction[] pivotRow = tableau[row];
+		BigFraction pivotElement = pivotRow[column];
+		for (int j = 0; j<pivotRow.length; ++j) pivotRow[j] = pivotRow[j].divide(pivotElement);
+		for (int i = 0; i<tableau.length; ++i) {
+			if (i==row || tableau[i][column].compareTo(BigFraction.ZERO)==0) continue;
+			BigFraction factor = tableau[i][column];
+			for (int j = 0; j<pivotRow.length; ++j)
+				if (pivotRow[j].compareTo(BigFraction.ZERO)!=0) tableau[i][j] = tableau[i][j].subtract(factor.multiply(pivotRow[j]));
+		}
+		basis[row] = column;
+	}
+}
@@ -0,0 +1,35 @@
+import java.math.BigInteger;
+
+
+/**
+ * The types of a knapsack problem with sizes and weights scaled to integers, sorted in descending order of
+ * their expansion. This is what MartelloTothBound needs to know about a knapsack problem, so that the bound
+ * can be used by IntegerKnapsackSolver as well as by ParametricKnapsackSolver.
+ *
+ */
+public interface ScaledTypes {
+
+	public int getNumberOfTypes();
+
+	public BigInteger getScaledSize(int index);
+
+	public BigInteger getScaledWeight(int index);
+
+	/**
+	 * Returns the first index at or after the given one whose type fits strictly into the remaining space,
+	 * or the number of types if there is none.
+	 */
+	public int firstFitting(int index, BigInteger remainingSpace);
+
+	/**
+	 * Returns how many items of the type at the given index fit strictly into the remaining space.
+	 */
+	public int howManyItemsFit(int index, BigInteger remainingSpace);
+
+	/**
+	 * Checks whether maxWeightFound > totalWeight + remainingSpace * expansion, where expansion is the
+	 * expansion of the type at the given index, or the sand expansion if the index is the number of types.
+	 */
+	public boolean isHeavierThanFilling(BigInteger maxWeightFound, BigInteger totalWeight, BigInteger remainingSpace,
+			int index);
+}
@@ -0,0 +1,32 @@
+import java.math.BigInteger;
+
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ * This class contains the arithmetic that is needed to write fractions with a common denominator, e.g.
+ * when the sizes and weights of the types are scaled to integers.
+ *
+ */
+public class Scaling {
+
+	/**
+	 * Returns the numerator of the given fraction when it is written with the given denominator.
+	 * The denominator must be a multiple of the denominator of the fraction.
+	 */
+	public static BigInteger scale(BigFraction f, BigInteger denominator) {
+		return f.getNumerator().multiply(denominator.divide(f.getDenominator()));
+	}
+
+	public static BigInteger lcm(BigInteger a, BigInteger b) {
+		return a.divide(a.gcd(b)).multiply(b);
+	}
+
+	/**
+	 * Returns the least common denominator of the given fractions with the given indices.
+	 */
+	public static BigInteger commonDenominator(BigFraction[] fractions, int[] indices) {
+		BigInteger denominator = BigInteger.ONE;
+		for (int i : indices) denominator = lcm(denominator, fractions[i].getDenominator());
+		return denominator;
+	}
+}
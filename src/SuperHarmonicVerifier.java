@@ -76,7 +76,7 @@ public class SuperHarmonicVerifier extends Verifier {
 		}
 
 		//check feasibility of the dual LP
-		KnapsackPattern p = checkSimpleDualLP(allSizes, weights);
+		KnapsackPattern p = checkSimpleDualLP(k, allSizes, weights);
 
 		//output the findings
 		if (p!=null)
@@ -0,0 +1,73 @@
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * This class stores upper bounds for sub-problems of the knapsack search. A sub-problem is given by the
+ * position in the permutation of types from which on items may still be added and by the remaining
+ * space (in units of 1/d for the common denominator d of the sizes); the value is an upper bound on the
+ * weight that can be added to a pattern in this sub-problem.
+ *
+ * The table holds at most a fixed number of entries; if it is full, the entry that was used least
+ * recently is evicted. All methods are synchronized, so one table can be shared by several threads.
+ *
+ * @param <V> the type of the bounds, e.g. BigInteger or BigFraction
+ */
+public class TranspositionTable<V extends Comparable<V>> {
+
+	private final Map<Key, V> table;
+
+	/**
+	 * Creates a table that holds at most the given number of entries.
+	 */
+	public TranspositionTable(int maxSize) {
+		table = new LinkedHashMap<Key, V>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+				return size()>maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the upper bound stored for the given sub-problem, or null if there is none.
+	 */
+	public synchronized V get(int typeIndexInPermutation, BigInteger remainingSpace) {
+		return table.get(new Key(typeIndexInPermutation, remainingSpace));
+	}
+
+	/**
+	 * Stores an upper bound for the given sub-problem. If there already is a bound, the smaller one is kept.
+	 */
+	public synchronized void put(int typeIndexInPermutation, BigInteger remainingSpace, V upperBound) {
+		Key key = new Key(typeIndexInPermutation, remainingSpace);
+		V old = table.get(key);
+		if (old==null || upperBound.compareTo(old)<0) table.put(key, upperBound);
+	}
+
+	private static class Key {
+		final int typeIndexInPermutation;
+		final BigInteger remainingSpace;
+
+		Key(int typeIndexInPermutation, BigInteger remainingSpace) {
+			this.typeIndexInPermutation = typeIndexInPermutation;
+			this.remainingSpace = remainingSpace;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31*typeIndexInPermutation + remainingSpace.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key k = (Key) o;
+			return typeIndexInPermutation==k.typeIndexInPermutation && remainingSpace.equals(k.remainingSpace);
+		}
+	}
+}
@@ -14,5 +14,127 @@ public class Util {
 	public static final String hppvpFileName = hppFileName + ".vp";
 	public static final String hppbspFileName = hppFileName + ".bsp";
 	public static final String hpppopFileName = hppFileName + ".pop";
+
+	/**
+	 * The engine used for solving the knapsack problems. It can be chosen by starting the JVM
+	 * with -Dengine=..., see DualLPChecker.createKnapsackSolver for the possible values.
+	 */
+	public static final String knapsackEngine = System.getProperty("engine", "auto");
+
+	/**
+	 * The largest common denominator of the sizes for which the knapsack problem is solved by dynamic
+	 * programming (see DPKnapsackSolver); it can be set with -DmaxDPCapacity=...
+	 */
+	public static final int maxDPCapacity = Integer.getInteger("maxDPCapacity", 1<<24);
+
+	/**
+	 * The largest number of types times the common denominator of the sizes for which a knapsack problem
+	 * is solved by dynamic programming (see DPKnapsackSolver.isApplicable); it can be set with -DmaxDPWork=...
+	 */
+	public static final long maxDPWork = Long.getLong("maxDPWork", 1<<24);
+
+	/**
+	 * The maximum number of partial patterns in the queue of BestFirstKnapsackSolver; it can be set
+	 * with -DbestFirstMaxNodes=...
+	 */
+	public static final int bestFirstMaxNodes = Integer.getInteger("bestFirstMaxNodes", 1<<12);
+
+	/**
+	 * Returns the knapsack engine for the case k. By default, this is knapsackEngine, but it can be
+	 * chosen for a single case by starting the JVM with -Dengine.k=...
+	 */
+	public static String getKnapsackEngine(int k) {
+		return System.getProperty("engine." + k, knapsackEngine);
+	}
+
+	/**
+	 * The number of threads used by the parallel computations; it can be set with -Dthreads=...
+	 */
+	public static final int numberOfThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The maximum number of entries of the transposition table of a knapsack search; with the default 0,
+	 * there is no table, as it rarely prunes a node and every lookup locks it. It can be set with, e.g.,
+	 * -DtranspositionTableSize=65536.
+	 */
+	public static final int transpositionTableSize = Integer.getInteger("transpositionTableSize", 0);
+
+	/**
+	 * The bound used for pruning the knapsack search; it can be chosen with -Dbound=..., see
+	 * IntegerKnapsackSolver.createBound for the possible values.
+	 */
+	public static final String knapsackBound = System.getProperty("bound", "mt");
+
+	/**
+	 * If this is set with -DknapsackStatistics=true, the number of nodes of every knapsack search and the
+	 * number of nodes pruned by each bound are written to the protocol.
+	 */
+	public static final boolean knapsackStatistics = Boolean.getBoolean("knapsackStatistics");
+
+	/**
+	 * Whether types dominated by other types are removed before each knapsack search (see
+	 * KnapsackSolver.removeDominatedTypes); this can be switched off with -Dpresolve=false.
+	 */
+	public static final boolean presolve = Boolean.parseBoolean(System.getProperty("presolve", "true"));
+
+	/**
+	 * Whether the knapsack problems of the extended dual LP are split into two sub-problems without the
+	 * conflicting types of NotQ1Q2 (see IntegerKnapsackSolver.search); this can be switched off with
+	 * -DsplitConflicts=false.
+	 */
+	public static final boolean splitConflicts = Boolean.parseBoolean(System.getProperty("splitConflicts", "true"));
+
+	/**
+	 * Whether the dual LPs are only decided instead of solved, i.e., the knapsack search stops at the first
+	 * pattern above the target ratio (see KnapsackSolver.findPatternAbove). The binary search uses this mode
+	 * by default, the verifiers (which print the heaviest patterns) do not; it can be set with
+	 * -DdecisionMode=true or -DdecisionMode=false.
+	 */
+	public static boolean isDecisionMode(boolean defaultValue) {
+		return Boolean.parseBoolean(System.getProperty("decisionMode", Boolean.toString(defaultValue)));
+	}
+
+	/**
+	 * The number of violating patterns the binary search collects per knapsack search; each of them cuts
+	 * down the interval of y3 (see BinarySearch.findY3). With the default 0, only the one pattern found by
+	 * the knapsack solver is used; this can be changed with, e.g., -Dcuts=10.
+	 */
+	public static final int numberOfCuts = Integer.getInteger("cuts", 0);
+
+	/**
+	 * The budget of every knapsack search of the verifiers: the maximum number of nodes (-DnodeBudget=...)
+	 * and the maximum time in milliseconds (-DtimeBudget=...). With the default 0, there is no limit. A
+	 * case whose search runs out of its budget is reported as open unless the bound of the search already
+	 * proves it (see KnapsackSolver.setBudget).
+	 */
+	public static final long nodeBudget = Long.getLong("nodeBudget", 0);
+	public static final long timeBudget = Long.getLong("timeBudget", 0);
+
+	/**
+	 * How the binary search finds y3: by default, y3-values are tested one after the other ("bisection");
+	 * with -Dy3Search=parametric, the interval of feasible y3-values is computed by a single knapsack search
+	 * if the first value is infeasible (see BinarySearch.findY3Parametric); with -Dy3Search=lp, y1, y2 and y3
+	 * are found together by column generation (see BinarySearch.findDualValuesByLP).
+	 */
+	public static final String y3Search = System.getProperty("y3Search", "bisection");
+
+	/**
+	 * The number of y3-values the binary search tests at once in each round, each in its own thread (see
+	 * BinarySearch.findY3ByProbing). With the default 1, one value is tested after the other; this can be
+	 * changed with, e.g., -Dy3Probes=3. It has no effect if cuts are used (see numberOfCuts).
+	 */
+	public static final int y3Probes = Integer.getInteger("y3Probes", 1);
+
+	/**
+	 * If this is set with -Dy3WarmStart=true, the binary search first tests the y3-values already found for
+	 * other cases (see BinarySearch.findY3FromOtherCases); then, the cases are searched one after the other.
+	 */
+	public static final boolean y3WarmStart = Boolean.getBoolean("y3WarmStart");
+
+	/**
+	 * If this is set with -Dy3WarmStartSavings=true, the cases decided by a warm start are searched again
+	 * without it, only to count how many knapsack searches the warm start saved (see BinarySearch.findY3).
+	 */
+	public static final boolean y3WarmStartSavings = Boolean.getBoolean("y3WarmStartSavings");
 	
 }
@@ -1,6 +1,15 @@
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.math3.fraction.BigFraction;
 
@@ -11,6 +20,11 @@ public abstract class Verifier extends DualLPChecker {
 	protected BufferedWriter knapsackOutputWriter;
 	protected BufferedWriter weightsWriter;
 
+	/**
+	 * If a case is checked in its own thread, the knapsack data is collected here (like the log messages).
+	 */
+	private final ThreadLocal<StringBuilder> knapsackOutputBuffer = new ThreadLocal<>();
+
 	/*
 	 * This class inherits fields from its parent DualLPChecker that contain the following information:
 	 * - types
@@ -47,6 +61,8 @@ public abstract class Verifier extends DualLPChecker {
 		for (int i = 0; i<types.length; ++i)
 			types[i].computeWeights();
 		patternWeightThreshold = targetRatio.subtract(new BigFraction(1,1000));
+		nodeBudget = Util.nodeBudget;
+		timeBudget = Util.timeBudget;
 		log("\n\tTARGET RATIO: "+targetRatio.doubleValue()+"\n--------------------------------------------");
 	}
 	
@@ -93,30 +109,137 @@ public abstract class Verifier extends DualLPChecker {
 
 		//---------------------CASE 1: k=K+1 ------------------------------
 		//find the heaviest pattern without r and check whether its weight is below our target ratio
-		checkKPlusOne();
+		boolean kPlusOneProven = checkKPlusOne();
 
 		//---------------------FURTHER CASES: k<K+1 ------------------------------
 		//now, check the different cases for r
-		for (int k = 0; k<redSpace.length; ++k) {
-			checkCasek(k);
-		}
+		List<Integer> openCases = checkAllCases();
 
-		log("\n\nAll cases proven feasible! Competitive ratio is " + targetRatio.doubleValue());
+		if (kPlusOneProven && openCases.isEmpty()) {
+			log("\n\nAll cases proven feasible! Competitive ratio is " + targetRatio.doubleValue());
+		} else {
+			//some knapsack searches ran out of their budget (see Util.nodeBudget, Util.timeBudget)
+			List<String> open = new ArrayList<>();
+			if (!kPlusOneProven) open.add("K+1");
+			for (int k : openCases) open.add(Integer.toString(k));
+			log("\n\nNo case is infeasible, but " + open.size() + " of " + (redSpace.length+1) + " cases are still open (k = "
+					+ String.join(", ", open) + "). Competitive ratio " + targetRatio.doubleValue() + " is not proven.");
+		}
 	}
 	
-	private void checkCasek(int k) throws IOException {
-		if (!isNecessaryToCheckCase(k)) return; //we can skip this case if there are no red items of this class
+	/**
+	 * This method checks all cases k<K+1. The cases are independent, so they are checked in parallel
+	 * by Util.numberOfThreads threads. The cases that are expected to take longest are started first.
+	 * The log messages and knapsack data of each case are collected and written in the order of k, so
+	 * the output files are the same as if the cases were checked one after the other. As soon as a case
+	 * turns out to be infeasible, all cases with larger k are cancelled, which also stops their running
+	 * knapsack searches (see KnapsackSolver.stopIfInterrupted); the cases with smaller k are still finished,
+	 * since their messages precede the one of the infeasible case. The workers read the futures of the other
+	 * cases, so they are kept in an AtomicReferenceArray. The method returns the cases that are still open,
+	 * as their knapsack searches ran out of their budget.
+	 */
+	private List<Integer> checkAllCases() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Util.numberOfThreads);
+		AtomicInteger firstInfeasibleCase = new AtomicInteger(redSpace.length);
+		AtomicReferenceArray<Future<CaseResult>> results = new AtomicReferenceArray<>(redSpace.length);
+
+		for (int k : orderCasesByExpectedTime()) {
+			results.set(k, executor.submit(new Callable<CaseResult>() {
+				@Override
+				public CaseResult call() {
+					if (k>firstInfeasibleCase.get()) return null; //this case is not needed anymore
+					CaseResult result = checkCasekBuffered(k);
+					if (!result.feasible) {
+						//cancel all cases with larger k
+						firstInfeasibleCase.accumulateAndGet(k, Math::min);
+						for (int i = k+1; i<results.length(); ++i) if (results.get(i)!=null) results.get(i).cancel(true);
+					}
+					return result;
+				}
+			}));
+		}
+		executor.shutdown();
+
+		//write the output of all cases in order
+		List<Integer> openCases = new ArrayList<>();
+		try {
+			for (int k = 0; k<redSpace.length; ++k) {
+				CaseResult result = results.get(k).get();
+				writeLog(result.log);
+				knapsackOutputWriter.write(result.knapsackData);
+				if (result.error!=null) {
+					executor.shutdownNow();
+					if (result.error instanceof IOException) throw (IOException) result.error;
+					if (result.error instanceof RuntimeException) throw (RuntimeException) result.error;
+					throw new IllegalStateException(result.error);
+				}
+				if (!result.feasible) {
+					//if this is too large, stop the program
+					log("INFEASIBLE FOR CASE WHERE k=" + k + "! Stopping computations.");
+					System.exit(0);
+				}
+				if (result.open) openCases.add(k);
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			executor.shutdownNow();
+			throw new IllegalStateException("Checking the cases was interrupted", e);
+		}
+		return openCases;
+	}
+
+	/**
+	 * Checks case k and collects its log messages and knapsack data instead of writing them.
+	 */
+	private CaseResult checkCasekBuffered(int k) {
+		CaseResult result = new CaseResult();
+		startLogBuffer();
+		knapsackOutputBuffer.set(new StringBuilder());
+		try {
+			result.feasible = checkCasek(k);
+			result.open = result.feasible && isOpen();
+		} catch (IOException | RuntimeException e) {
+			result.error = e;
+		} finally {
+			result.log = stopLogBuffer();
+			result.knapsackData = knapsackOutputBuffer.get().toString();
+			knapsackOutputBuffer.remove();
+		}
+		return result;
+	}
+
+	/**
+	 * The outcome of checking one case, together with its output.
+	 */
+	private static class CaseResult {
+		boolean feasible = true;
+		boolean open; //no pattern above the target ratio was found, but the knapsack search ran out of its budget
+		Exception error;
+		String log;
+		String knapsackData;
+	}
+
+	/**
+	 * Checks case k; returns false if the case is infeasible. If the case is still open (see isOpen), true
+	 * is returned as well.
+	 */
+	private boolean checkCasek(int k) throws IOException {
+		clearOpenUpperBound();
+		if (!isNecessaryToCheckCase(k)) return true; //we can skip this case if there are no red items of this class
 
 		//check feasibility of the dual LP; compute heaviest pattern for corresponding knapsack problem
 		KnapsackPattern v = checkDualLP(k, y3Values[k]);
 		
 		if (v!=null && v.getTotalWeightInclSand(sandExpansion).compareTo(targetRatio)>0) {
-			//if this is too large, stop the program
-			log("INFEASIBLE FOR CASE WHERE k=" + k + "! Stopping computations.");
-			System.exit(0);
+			//if this is too large, the program has to be stopped
+			return false;
+		}
+		if (isOpen()) {
+			log("Case k=" + k + " is open, as the knapsack search ran out of its budget.\n\n--------------------------------------------\n");
+			return true;
 		}
 		
 		log("Case k=" + k + " verified!\n\n--------------------------------------------\n");
+		return true;
 	}
 
 	@Override
@@ -387,19 +510,25 @@ public abstract class Verifier extends DualLPChecker {
 	 */
 	@Override
 	protected void writeKnapsackFile(int k, BigFraction[] sizeLB, BigFraction[] weights) throws IOException {
-		knapsackOutputWriter.write("Knapsack data for k = " + k + "\n");
-		knapsackOutputWriter.write("sizes = [");
+		StringBuilder s = new StringBuilder();
+		s.append("Knapsack data for k = " + k + "\n");
+		s.append("sizes = [");
 
 		for (int i = 0; i<sizeLB.length; ++i) {
-			if (i>0) knapsackOutputWriter.write(", ");
-			knapsackOutputWriter.write(sizeLB[i].toString());
+			if (i>0) s.append(", ");
+			s.append(sizeLB[i].toString());
 		}
-		knapsackOutputWriter.write("]\nweights = [");
+		s.append("]\nweights = [");
 		for (int i = 0; i<weights.length; ++i) {
-			if (i>0) knapsackOutputWriter.write(", ");
-			knapsackOutputWriter.write(weights[i].toString());
+			if (i>0) s.append(", ");
+			s.append(weights[i].toString());
 		}
-		knapsackOutputWriter.write("]\n");
+		s.append("]\n");
+
+		//if the case is checked in its own thread, the data is written later
+		StringBuilder buffer = knapsackOutputBuffer.get();
+		if (buffer!=null) buffer.append(s);
+		else knapsackOutputWriter.write(s.toString());
 	}
 
 	private String getStringForWeightFunction(BigFraction[] weight) {